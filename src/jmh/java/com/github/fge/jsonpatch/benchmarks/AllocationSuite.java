@@ -0,0 +1,308 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jsonpatch.JsonPatch;
+import com.github.fge.jsonpatch.diff.DiffInternals;
+import com.github.fge.jsonpatch.diff.JsonDiff;
+import com.github.fge.jsonpatch.mergepatch.JsonMergePatch;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Allocation and footprint report, checked against an optional budget
+ *
+ * <p>This runs the selected benchmarks with JMH's GC profiler and reports the
+ * number of bytes each invocation allocates ({@code gc.alloc.rate.norm}). It
+ * then reports the heap retained by the objects the library builds from a
+ * workload, excluding the source and target documents they may share nodes
+ * with: a {@link JsonPatch} and its {@link
+ * com.github.fge.jsonpatch.CompiledJsonPatch compiled} form, the internal
+ * diff operations, the JSON form of the diff, and a {@link JsonMergePatch}.
+ * Retained sizes are measured with JOL, for each combination of {@link
+ * Workload} parameters.</p>
+ *
+ * <p>Arguments are those of JMH, plus:</p>
+ *
+ * <ul>
+ *     <li>{@code --budget <file>}: a properties file of maximum bytes; keys
+ *     are labels as reported, or benchmark names without their parameters
+ *     (for instance {@code JsonPatchBenchmark.apply} or {@code
+ *     footprint.JsonPatch}), in which case the budget applies whatever the
+ *     parameters; the program exits with status 1 if a budget is
+ *     exceeded;</li>
+ *     <li>{@code --footprint-only}: do not run benchmarks.</li>
+ * </ul>
+ */
+public final class AllocationSuite
+{
+    private static final String BUDGET = "--budget";
+    private static final String FOOTPRINT_ONLY = "--footprint-only";
+
+    /*
+     * Label of the normalized allocation rate; older JMH versions prefix
+     * secondary results with a middle dot
+     */
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+
+    private AllocationSuite()
+    {
+    }
+
+    public static void main(final String... args)
+        throws Exception
+    {
+        final List<String> jmhArgs = Lists.newArrayList();
+        String budgetFile = null;
+        boolean footprintOnly = false;
+
+        for (int i = 0; i < args.length; i++) {
+            if (BUDGET.equals(args[i]) && i + 1 < args.length)
+                budgetFile = args[++i];
+            else if (FOOTPRINT_ONLY.equals(args[i]))
+                footprintOnly = true;
+            else
+                jmhArgs.add(args[i]);
+        }
+
+        final CommandLineOptions options = new CommandLineOptions(
+            jmhArgs.toArray(new String[jmhArgs.size()]));
+        final Map<String, Long> measured = Maps.newLinkedHashMap();
+
+        /*
+         * Footprints are measured first, while the heap only holds what this
+         * program created: running benchmarks first makes some results vary
+         */
+        final Map<String, Long> footprints = footprints(options);
+
+        if (!footprintOnly)
+            measured.putAll(allocations(options));
+        measured.putAll(footprints);
+
+        System.out.println();
+        System.out.println("Bytes per operation / retained bytes:");
+        for (final Map.Entry<String, Long> entry: measured.entrySet())
+            System.out.printf("%12d  %s%n", entry.getValue(), entry.getKey());
+
+        if (budgetFile != null && !withinBudget(measured, budgetFile))
+            System.exit(1);
+    }
+
+    private static Map<String, Long> allocations(
+        final CommandLineOptions options)
+        throws Exception
+    {
+        final Collection<RunResult> results = new Runner(new OptionsBuilder()
+            .parent(options).addProfiler(GCProfiler.class).build()).run();
+        final Map<String, Long> ret = Maps.newLinkedHashMap();
+
+        for (final RunResult result: results) {
+            final Map<String, Result> secondary
+                = result.getSecondaryResults();
+            Result allocation = secondary.get(ALLOCATION);
+            if (allocation == null)
+                allocation = secondary.get('·' + ALLOCATION);
+            if (allocation == null)
+                continue;
+            ret.put(label(result.getParams()),
+                Math.round(allocation.getScore()));
+        }
+
+        return ret;
+    }
+
+    private static Map<String, Long> footprints(
+        final CommandLineOptions options)
+        throws Exception
+    {
+        final Map<String, Long> ret = Maps.newLinkedHashMap();
+        final Field[] fields = parameterFields();
+        final List<List<String>> values = Lists.newArrayList();
+
+        for (final Field field: fields)
+            values.add(Lists.newArrayList(options.getParameter(field.getName())
+                .orElse(Arrays.asList(field.getAnnotation(Param.class)
+                    .value()))));
+
+        for (final List<String> combination: cartesianProduct(values)) {
+            final Workload workload = new Workload();
+            final StringBuilder params = new StringBuilder();
+
+            for (int i = 0; i < fields.length; i++) {
+                setParameter(workload, fields[i], combination.get(i));
+                params.append(i == 0 ? '{' : ',').append(fields[i].getName())
+                    .append('=').append(combination.get(i));
+            }
+            params.append('}');
+            workload.generate();
+
+            final JsonNode source = workload.source;
+            final JsonNode target = workload.target;
+            final GraphLayout documents
+                = GraphLayout.parseInstance(source, target);
+            final JsonPatch patch = JsonDiff.asJsonPatch(source, target);
+            final Map<String, Object> graphs = Maps.newLinkedHashMap();
+
+            graphs.put("JsonPatch", patch);
+            graphs.put("CompiledJsonPatch", patch.compile());
+            graphs.put("DiffOperation", DiffInternals.diffOperations(source,
+                target));
+            graphs.put("JsonDiff.asJson", JsonDiff.asJson(source, target));
+            graphs.put("JsonMergePatch", JsonMergePatch.diff(source, target));
+
+            for (final Map.Entry<String, Object> entry: graphs.entrySet())
+                ret.put("footprint." + entry.getKey() + params,
+                    GraphLayout.parseInstance(entry.getValue())
+                        .subtract(documents).totalSize());
+        }
+
+        return ret;
+    }
+
+    private static boolean withinBudget(final Map<String, Long> measured,
+        final String budgetFile)
+        throws IOException
+    {
+        final Properties budget = new Properties();
+        final InputStream in = new FileInputStream(budgetFile);
+
+        try {
+            budget.load(in);
+        } finally {
+            in.close();
+        }
+
+        boolean ret = true;
+        String limit;
+
+        for (final Map.Entry<String, Long> entry: measured.entrySet()) {
+            limit = budget.getProperty(entry.getKey());
+            if (limit == null)
+                limit = budget.getProperty(withoutParams(entry.getKey()));
+            if (limit == null || entry.getValue() <= Long.parseLong(limit
+                .trim()))
+                continue;
+            System.out.printf("Over budget: %s: %d bytes, budget is %s%n",
+                entry.getKey(), entry.getValue(), limit.trim());
+            ret = false;
+        }
+
+        return ret;
+    }
+
+    /*
+     * Benchmark name without its package, followed by its parameters
+     */
+    private static String label(final BenchmarkParams params)
+    {
+        final String benchmark = params.getBenchmark();
+        final StringBuilder sb = new StringBuilder(benchmark
+            .substring(benchmark.lastIndexOf('.', benchmark.lastIndexOf('.')
+                - 1) + 1));
+        final Collection<String> keys = params.getParamsKeys();
+        char separator = '{';
+
+        for (final String key: keys) {
+            sb.append(separator).append(key).append('=')
+                .append(params.getParam(key));
+            separator = ',';
+        }
+
+        if (!keys.isEmpty())
+            sb.append('}');
+        return sb.toString();
+    }
+
+    private static String withoutParams(final String label)
+    {
+        final int index = label.indexOf('{');
+        return index == -1 ? label : label.substring(0, index);
+    }
+
+    /*
+     * Sorted by name, as JMH does
+     */
+    private static Field[] parameterFields()
+    {
+        final Map<String, Field> ret = Maps.newTreeMap();
+        for (final Field field: Workload.class.getFields())
+            if (field.isAnnotationPresent(Param.class))
+                ret.put(field.getName(), field);
+        return ret.values().toArray(new Field[ret.size()]);
+    }
+
+    private static void setParameter(final Workload workload,
+        final Field field, final String value)
+        throws IllegalAccessException
+    {
+        final Class<?> type = field.getType();
+
+        if (type == int.class)
+            field.setInt(workload, Integer.parseInt(value));
+        else if (type == long.class)
+            field.setLong(workload, Long.parseLong(value));
+        else if (type == boolean.class)
+            field.setBoolean(workload, Boolean.parseBoolean(value));
+        else
+            throw new IllegalArgumentException("unsupported parameter type "
+                + type);
+    }
+
+    private static List<List<String>> cartesianProduct(
+        final List<List<String>> values)
+    {
+        List<List<String>> ret = Lists.newArrayList();
+        ret.add(Lists.<String>newArrayList());
+
+        for (final List<String> choices: values) {
+            final List<List<String>> next = Lists.newArrayList();
+            for (final List<String> prefix: ret)
+                for (final String choice: choices) {
+                    final List<String> combination
+                        = Lists.newArrayList(prefix);
+                    combination.add(choice);
+                    next.add(combination);
+                }
+            ret = next;
+        }
+
+        return ret;
+    }
+}
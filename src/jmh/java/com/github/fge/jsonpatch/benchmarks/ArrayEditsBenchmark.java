@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.jsonpatch.JsonPatch;
+import com.github.fge.jsonpatch.JsonPatchException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of {@link JsonPatch} on patches mixing edits of array elements
+ * and additions to the same array
+ *
+ * <p>The document is an array of {@code pairs} objects; the patch is made of
+ * as many pairs of operations, each replacing a member of an element found
+ * with a {@code value_locator} and appending a new element. Every addition
+ * checks whether the array already holds the value after an element was
+ * modified, so the time taken must be linear in {@code pairs}; compare the
+ * scores for its different values.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ArrayEditsBenchmark
+{
+    private static final JsonNodeFactory FACTORY = JacksonUtils.nodeFactory();
+
+    @Param({ "1000", "4000" })
+    public int pairs;
+
+    private ObjectNode document;
+    private JsonPatch patch;
+
+    @Setup
+    public void generate()
+        throws IOException
+    {
+        document = FACTORY.objectNode();
+        final ArrayNode array = document.putArray("arr");
+        for (int i = 0; i < pairs; i++)
+            array.addObject().put("id", i).put("v", 0);
+
+        final ArrayNode operations = FACTORY.arrayNode();
+        ObjectNode operation;
+        for (int i = 0; i < pairs; i++) {
+            operation = operations.addObject().put("op", "replace")
+                .put("path", "/arr/?/v").put("value", i);
+            operation.putObject("value_locator").put("id", i);
+            operation = operations.addObject().put("op", "add")
+                .put("path", "/arr/-");
+            operation.putObject("value").put("id", pairs + i).put("v", 0);
+        }
+        patch = JsonPatch.fromJson(operations);
+    }
+
+    @Benchmark
+    public JsonNode apply()
+        throws JsonPatchException
+    {
+        return patch.apply(document, true);
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+
+package com.github.fge.jsonpatch.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jackson.JsonLoader;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+import com.github.fge.jackson.jsonpointer.JsonPointerException;
+import com.github.fge.jsonpatch.JsonDiffException;
+import com.github.fge.jsonpatch.JsonPatch;
+import com.github.fge.jsonpatch.JsonPatchException;
+import com.github.fge.jsonpatch.diff.JsonDiff;
+import com.github.fge.jsonpatch.mergepatch.JsonMergePatch;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks over the test fixtures in {@code src/test/resources/jsonpatch}
+ *
+ * <p>These are small documents: each benchmark processes all fixtures of a
+ * kind, and measures fixed costs rather than scaling.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FixtureBenchmark
+{
+    private static final int KEYED_DIFFS = 6;
+
+    private final List<JsonPatch> patches = Lists.newArrayList();
+    private final List<JsonNode> documents = Lists.newArrayList();
+    private final List<JsonNode> diffSources = Lists.newArrayList();
+    private final List<JsonNode> diffTargets = Lists.newArrayList();
+    private final List<JsonNode> keyedSources = Lists.newArrayList();
+    private final List<JsonNode> keyedTargets = Lists.newArrayList();
+    private final Map<JsonPointer, String> keyFields = Maps.newHashMap();
+    private final List<JsonMergePatch> mergePatches = Lists.newArrayList();
+    private final List<JsonNode> mergeVictims = Lists.newArrayList();
+
+    @Setup
+    public void load()
+        throws IOException, JsonPointerException, JsonPatchException
+    {
+        /*
+         * Only patches which apply successfully
+         */
+        for (final JsonNode node: JsonLoader.fromResource(
+            "/jsonpatch/testsuite.json")) {
+            if (!node.has("patch") || node.has("error")
+                || node.has("disabled"))
+                continue;
+            patches.add(JsonPatch.fromJson(node.get("patch")));
+            documents.add(node.get("doc"));
+        }
+
+        for (final JsonNode node: JsonLoader.fromResource(
+            "/jsonpatch/diff/diff.json")) {
+            diffSources.add(node.get("first"));
+            diffTargets.add(node.get("second"));
+        }
+
+        /*
+         * Keys as in TestJsonDiff
+         */
+        for (int i = 1; i <= KEYED_DIFFS; i++) {
+            keyedSources.add(JsonLoader.fromResource(
+                "/jsonpatch/diffcustom/old" + i + ".json"));
+            keyedTargets.add(JsonLoader.fromResource(
+                "/jsonpatch/diffcustom/new" + i + ".json"));
+        }
+        keyFields.put(new JsonPointer("/Profiles"), "Profile");
+        keyFields.put(new JsonPointer("/Groups"), "Group");
+        keyFields.put(new JsonPointer("/Roles"), "Role");
+        keyFields.put(new JsonPointer("/User Licenses"), "License");
+        keyFields.put(new JsonPointer("/Grouppp"), "b");
+
+        for (final JsonNode node: JsonLoader.fromResource(
+            "/jsonpatch/mergepatch/patch-object.json")) {
+            mergePatches.add(JsonMergePatch.fromJson(node.get("patch")));
+            mergeVictims.add(node.get("victim"));
+        }
+    }
+
+    @Benchmark
+    public void applyTestSuite(final Blackhole blackhole)
+        throws JsonPatchException
+    {
+        for (int i = 0; i < patches.size(); i++)
+            blackhole.consume(patches.get(i).apply(documents.get(i)));
+    }
+
+    @Benchmark
+    public void diff(final Blackhole blackhole)
+    {
+        for (int i = 0; i < diffSources.size(); i++)
+            blackhole.consume(JsonDiff.asJsonPatch(diffSources.get(i),
+                diffTargets.get(i)));
+    }
+
+    @Benchmark
+    public void diffKeyed(final Blackhole blackhole)
+        throws JsonDiffException
+    {
+        for (int i = 0; i < keyedSources.size(); i++)
+            blackhole.consume(JsonDiff.asJsonPatch(keyedSources.get(i),
+                keyedTargets.get(i), keyFields));
+    }
+
+    @Benchmark
+    public void applyMergePatches(final Blackhole blackhole)
+        throws JsonPatchException
+    {
+        for (int i = 0; i < mergePatches.size(); i++)
+            blackhole.consume(mergePatches.get(i).apply(mergeVictims.get(i)));
+    }
+}
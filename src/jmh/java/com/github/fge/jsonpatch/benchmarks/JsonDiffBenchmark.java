@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+
+package com.github.fge.jsonpatch.benchmarks;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.jsonpatch.JsonDiffException;
+import com.github.fge.jsonpatch.JsonPatch;
+import com.github.fge.jsonpatch.diff.ArrayDiffStrategy;
+import com.github.fge.jsonpatch.diff.JsonDiff;
+import com.google.common.io.ByteStreams;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of {@link JsonDiff}
+ *
+ * <p>Only {@link #diff(Workload)} and {@link #diffAsJson(Workload)} take keys
+ * into account; the other entry points ignore them.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonDiffBenchmark
+{
+    @Benchmark
+    public JsonPatch diff(final Workload workload)
+        throws JsonDiffException
+    {
+        return workload.keyed
+            ? JsonDiff.asJsonPatch(workload.source, workload.target,
+                workload.keyFields)
+            : JsonDiff.asJsonPatch(workload.source, workload.target);
+    }
+
+    @Benchmark
+    public JsonNode diffAsJson(final Workload workload)
+        throws JsonDiffException
+    {
+        return workload.keyed
+            ? JsonDiff.asJson(workload.source, workload.target,
+                workload.keyFields)
+            : JsonDiff.asJson(workload.source, workload.target);
+    }
+
+    @Benchmark
+    public JsonPatch diffUsingLcs(final Workload workload)
+    {
+        return JsonDiff.asJsonPatchUsing(workload.source, workload.target,
+            ArrayDiffStrategy.LCS);
+    }
+
+    @Benchmark
+    public JsonPatch diffInParallel(final Workload workload)
+    {
+        return JsonDiff.asJsonPatchInParallel(workload.source,
+            workload.target, ForkJoinPool.commonPool());
+    }
+
+    @Benchmark
+    public void diffToGenerator(final Workload workload)
+        throws IOException
+    {
+        final JsonGenerator generator = JacksonUtils.getReader().getFactory()
+            .createGenerator(ByteStreams.nullOutputStream());
+        JsonDiff.writeTo(generator, workload.source, workload.target);
+        generator.flush();
+    }
+}
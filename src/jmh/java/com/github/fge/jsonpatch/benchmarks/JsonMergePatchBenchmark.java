@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+
+package com.github.fge.jsonpatch.benchmarks;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.jsonpatch.JsonPatchException;
+import com.github.fge.jsonpatch.mergepatch.JsonMergePatch;
+import com.google.common.io.ByteStreams;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of {@link JsonMergePatch}
+ *
+ * <p>The patch is the merge patch diff of the workload; keys are irrelevant to
+ * merge patches.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonMergePatchBenchmark
+{
+    private static final ObjectMapper MAPPER = JacksonUtils.newMapper();
+    private static final JsonFactory FACTORY = MAPPER.getFactory();
+
+    /*
+     * Number of patches composed by compose()
+     */
+    private static final int COMPOSED = 16;
+
+    @State(Scope.Benchmark)
+    public static class Patch
+    {
+        JsonMergePatch patch;
+        JsonNode json;
+        byte[] bytes;
+        byte[] source;
+        JsonMergePatch[] sequence;
+
+        @Setup
+        public void diff(final Workload workload)
+            throws IOException
+        {
+            patch = JsonMergePatch.diff(workload.source, workload.target);
+            json = MAPPER.readTree(MAPPER.writeValueAsBytes(patch));
+            bytes = MAPPER.writeValueAsBytes(json);
+            source = MAPPER.writeValueAsBytes(workload.source);
+
+            /*
+             * Alternately patch the source into the target and back
+             */
+            final JsonMergePatch reverse
+                = JsonMergePatch.diff(workload.target, workload.source);
+            sequence = new JsonMergePatch[COMPOSED];
+            for (int i = 0; i < COMPOSED; i++)
+                sequence[i] = i % 2 == 0 ? patch : reverse;
+        }
+    }
+
+    @Benchmark
+    public JsonNode apply(final Workload workload, final Patch patch)
+        throws JsonPatchException
+    {
+        return patch.patch.apply(workload.source);
+    }
+
+    @Benchmark
+    public JsonNode applyCopyOnWrite(final Workload workload,
+        final Patch patch)
+        throws JsonPatchException
+    {
+        return patch.patch.applyCopyOnWrite(workload.source);
+    }
+
+    @Benchmark
+    public void applyStreaming(final Patch patch)
+        throws IOException
+    {
+        final JsonParser parser = FACTORY.createParser(patch.source);
+        final JsonGenerator generator
+            = FACTORY.createGenerator(ByteStreams.nullOutputStream());
+        patch.patch.apply(parser, generator);
+        parser.close();
+        generator.close();
+    }
+
+    @Benchmark
+    public JsonMergePatch diff(final Workload workload)
+    {
+        return JsonMergePatch.diff(workload.source, workload.target);
+    }
+
+    @Benchmark
+    public JsonMergePatch compose(final Patch patch)
+        throws JsonPatchException
+    {
+        return JsonMergePatch.compose(patch.sequence);
+    }
+
+    @Benchmark
+    public JsonMergePatch fromJson(final Patch patch)
+        throws JsonPatchException
+    {
+        return JsonMergePatch.fromJson(patch.json);
+    }
+
+    @Benchmark
+    public JsonMergePatch deserialize(final Patch patch)
+        throws IOException
+    {
+        return MAPPER.readValue(patch.bytes, JsonMergePatch.class);
+    }
+}
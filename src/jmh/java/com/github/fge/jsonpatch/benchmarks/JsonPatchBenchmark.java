@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+
+package com.github.fge.jsonpatch.benchmarks;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.jsonpatch.CompiledJsonPatch;
+import com.github.fge.jsonpatch.JsonPatch;
+import com.github.fge.jsonpatch.JsonPatchException;
+import com.github.fge.jsonpatch.diff.JsonDiff;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of {@link JsonPatch} and {@link CompiledJsonPatch}
+ *
+ * <p>The patch is the diff of the workload, except for {@link
+ * #applyGenerated(Workload)} which applies the patch generated along with the
+ * workload. Diffs generated with keys are not used: they do not always apply
+ * to the source they were generated from.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonPatchBenchmark
+{
+    private static final ObjectMapper MAPPER = JacksonUtils.newMapper();
+
+    @State(Scope.Benchmark)
+    public static class Patch
+    {
+        JsonPatch patch;
+        CompiledJsonPatch compiled;
+        JsonNode json;
+        byte[] bytes;
+
+        @Setup
+        public void diff(final Workload workload)
+            throws IOException
+        {
+            patch = JsonDiff.asJsonPatch(workload.source, workload.target);
+            compiled = patch.compile();
+            json = MAPPER.valueToTree(patch);
+            bytes = MAPPER.writeValueAsBytes(json);
+        }
+    }
+
+    /*
+     * In place application modifies its input; each invocation needs a fresh
+     * copy, which is made outside of the measurement
+     */
+    @State(Scope.Thread)
+    public static class Input
+    {
+        JsonNode node;
+
+        @Setup(Level.Invocation)
+        public void copy(final Workload workload)
+        {
+            node = workload.source.deepCopy();
+        }
+    }
+
+    @Benchmark
+    public JsonNode apply(final Workload workload, final Patch patch)
+        throws JsonPatchException
+    {
+        return patch.patch.apply(workload.source);
+    }
+
+    @Benchmark
+    public JsonNode applyGenerated(final Workload workload)
+        throws JsonPatchException
+    {
+        return workload.patch.apply(workload.source);
+    }
+
+    @Benchmark
+    public JsonNode applyInPlace(final Input input, final Patch patch)
+        throws JsonPatchException
+    {
+        return patch.patch.applyInPlace(input.node);
+    }
+
+    @Benchmark
+    public JsonNode applyTransactionally(final Input input, final Patch patch)
+        throws JsonPatchException
+    {
+        return patch.patch.applyTransactionally(input.node);
+    }
+
+    @Benchmark
+    public JsonNode applyCompiled(final Workload workload, final Patch patch)
+        throws JsonPatchException
+    {
+        return patch.compiled.apply(workload.source);
+    }
+
+    @Benchmark
+    public CompiledJsonPatch compile(final Patch patch)
+    {
+        return patch.patch.compile();
+    }
+
+    @Benchmark
+    public JsonPatch fromJson(final Patch patch)
+        throws IOException
+    {
+        return JsonPatch.fromJson(patch.json);
+    }
+
+    @Benchmark
+    public JsonPatch fromStream(final Patch patch)
+        throws IOException
+    {
+        return JsonPatch.fromStream(new ByteArrayInputStream(patch.bytes));
+    }
+
+    @Benchmark
+    public JsonNode applyStream(final Workload workload, final Patch patch)
+        throws IOException, JsonPatchException
+    {
+        final JsonParser parser = MAPPER.getFactory()
+            .createParser(patch.bytes);
+        try {
+            return JsonPatch.applyStream(parser, workload.source, false);
+        } finally {
+            parser.close();
+        }
+    }
+}
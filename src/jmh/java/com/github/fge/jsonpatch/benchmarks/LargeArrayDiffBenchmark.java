@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+import com.github.fge.jsonpatch.JsonDiffException;
+import com.github.fge.jsonpatch.diff.JsonDiff;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of {@link JsonDiff} on single, long arrays
+ *
+ * <p>Diffs of keyed arrays, and of arrays without keys whose elements are
+ * shifted, must take time linear in the length of the arrays; compare the
+ * scores for the different values of {@code size}.</p>
+ *
+ * <p>In the keyed array, the first {@code size / 100} elements are removed,
+ * one element in ten of the rest is modified, and as many new elements are
+ * appended. In the array without key, the first {@code size / 100} elements
+ * are replaced and the others are reversed.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LargeArrayDiffBenchmark
+{
+    private static final JsonNodeFactory FACTORY = JacksonUtils.nodeFactory();
+
+    @Param({ "10000", "100000" })
+    public int size;
+
+    private ObjectNode keyedSource;
+    private ObjectNode keyedTarget;
+    private Map<JsonPointer, String> keyFields;
+    private ObjectNode source;
+    private ObjectNode target;
+
+    @Setup
+    public void generate()
+    {
+        final int changed = size / 100;
+
+        keyedSource = FACTORY.objectNode();
+        keyedTarget = FACTORY.objectNode();
+        ArrayNode before = keyedSource.putArray("list");
+        ArrayNode after = keyedTarget.putArray("list");
+        for (int i = 0; i < size; i++) {
+            before.addObject().put("id", "k" + i).put("v", i);
+            if (i >= changed)
+                after.addObject().put("id", "k" + i)
+                    .put("v", i % 10 == 0 ? -i : i);
+        }
+        for (int i = size; i < size + changed; i++)
+            after.addObject().put("id", "k" + i).put("v", i);
+        keyFields = Collections.singletonMap(JsonPointer.of("list"), "id");
+
+        source = FACTORY.objectNode();
+        target = FACTORY.objectNode();
+        before = source.putArray("arr");
+        after = target.putArray("arr");
+        for (int i = 0; i < size; i++) {
+            before.addObject().put("n", i);
+            after.addObject().put("n",
+                i < changed ? -i - 1 : size - i + changed - 1);
+        }
+    }
+
+    @Benchmark
+    public JsonNode diffKeyed()
+        throws JsonDiffException
+    {
+        return JsonDiff.asJson(keyedSource, keyedTarget, keyFields);
+    }
+
+    @Benchmark
+    public JsonNode diffWithoutKey()
+        throws JsonDiffException
+    {
+        return JsonDiff.asJson(source, target, null);
+    }
+}
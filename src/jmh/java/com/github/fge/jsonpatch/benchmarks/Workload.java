@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+
+package com.github.fge.jsonpatch.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+import com.github.fge.jsonpatch.JsonPatch;
+import com.github.fge.jsonpatch.workload.DocumentShape;
+import com.github.fge.jsonpatch.workload.GeneratedWorkload;
+import com.github.fge.jsonpatch.workload.WorkloadGenerator;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Map;
+
+/**
+ * A generated source document and a mutated version of it
+ *
+ * <p>Documents are generated by a {@link WorkloadGenerator}, from a fixed
+ * seed, so that all runs use the same inputs. Objects have {@code width}
+ * scalar members, records arrays have {@code arrayLength} elements, and
+ * documents are {@code depth} levels deep; see {@link DocumentShape}. Records
+ * have a key if {@code keyed} is true. If {@code size} is not zero, the source
+ * is made of as many such documents as needed to reach that many bytes.</p>
+ *
+ * <p>The target is the source with {@code changed} percent of its values
+ * changed; the patch between the two is generated along with the target.</p>
+ */
+@State(Scope.Benchmark)
+public class Workload
+{
+    private static final long SEED = 7386L;
+
+    @Param({ "16", "256" })
+    public int width;
+
+    @Param({ "2", "8" })
+    public int depth;
+
+    @Param({ "16", "1024" })
+    public int arrayLength;
+
+    @Param({ "1", "25" })
+    public int changed;
+
+    @Param({ "false", "true" })
+    public boolean keyed;
+
+    @Param({ "0" })
+    public long size;
+
+    JsonNode source;
+    JsonNode target;
+    JsonPatch patch;
+
+    /*
+     * Empty if arrays are not keyed
+     */
+    Map<JsonPointer, String> keyFields;
+
+    @Setup
+    public void generate()
+    {
+        final DocumentShape shape = DocumentShape.DEFAULT.withWidth(width)
+            .withDepth(depth).withArrayLength(arrayLength).withKeyed(keyed);
+        final GeneratedWorkload workload = new WorkloadGenerator(SEED)
+            .workload(shape, size, changed);
+        source = workload.getSource();
+        target = workload.getTarget();
+        patch = workload.getPatch();
+        keyFields = workload.getKeyFields();
+    }
+}
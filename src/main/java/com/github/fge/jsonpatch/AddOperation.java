@@ -23,13 +23,13 @@ import java.util.List;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.fge.jackson.JacksonUtils;
 import com.github.fge.jackson.jsonpointer.JsonPointer;
 import com.github.fge.jackson.jsonpointer.JsonPointerException;
 import com.github.fge.jackson.jsonpointer.ReferenceToken;
-import com.github.fge.jackson.jsonpointer.TokenResolver;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 
@@ -81,15 +81,108 @@ import com.google.common.collect.Lists;
 public final class AddOperation extends PathValueOperation {
 	private static final ReferenceToken LAST_ARRAY_ELEMENT = ReferenceToken.fromRaw("-");
 
-	private ObjectMapper objectMapper = new ObjectMapper();
+	private static final JsonNodeFactory FACTORY = JacksonUtils.nodeFactory();
+
+	/*
+	 * Values of arrayAddIndex() for the "-" token, for tokens which are not
+	 * integers, and for negative integers
+	 */
+	static final int APPEND = -1;
+	static final int NOT_AN_INDEX = -2;
+	static final int NEGATIVE_INDEX = -3;
 
 	@JsonCreator
 	public AddOperation(@JsonProperty("path") final JsonPointer path, @JsonProperty("value") final JsonNode value) {
 		super("add", path, value);
 	}
 
+	AddOperation(final JsonPointer path, final JsonNode value, final boolean copy) {
+		super("add", path, value, copy);
+	}
+
 	@Override
 	public JsonNode apply(final JsonNode node) throws JsonPatchException {
+		return applyInPlace(node.deepCopy(), new NodeMutator());
+	}
+
+	@Override
+	JsonNode applyInPlace(final JsonPointer path, final JsonNode node, final NodeMutator mutator)
+			throws JsonPatchException {
+		return addValue(path, value.deepCopy(), node, mutator);
+	}
+
+	@Override
+	CompiledOperation compile() {
+		final ParsedPointer pointer = new ParsedPointer(path);
+		return new CompiledOperation() {
+			@Override
+			JsonNode apply(final JsonNode node, final NodeMutator mutator) throws JsonPatchException {
+				return addValue(pointer, value.deepCopy(), node, mutator);
+			}
+		};
+	}
+
+	/**
+	 * Add a value to a JSON value, modifying it in place, using a parsed
+	 * pointer
+	 *
+	 * <p>
+	 * Only the common case of an existing container parent is handled here;
+	 * other cases are deferred to {@link #addValue(JsonPointer, JsonNode,
+	 * JsonNode, NodeMutator)}.
+	 * </p>
+	 *
+	 * @param path
+	 *            where to add the value
+	 * @param value
+	 *            the value to add
+	 * @param node
+	 *            the value to patch
+	 * @param mutator
+	 *            the mutator to perform changes with
+	 * @return the patched value
+	 * @throws JsonPatchException
+	 *             value cannot be added at this path
+	 */
+	static JsonNode addValue(final ParsedPointer path, final JsonNode value, final JsonNode node,
+			final NodeMutator mutator) throws JsonPatchException {
+		if (path.isEmpty())
+			return value;
+
+		final JsonNode parentNode = path.parent(node);
+		if (parentNode == null || !parentNode.isContainerNode())
+			return addValue(path.getPointer(), value, node, mutator);
+
+		if (parentNode.isArray())
+			addToArray((ArrayNode) parentNode, path.addIndex(), value, mutator);
+		else
+			addToObject((ObjectNode) parentNode, path.lastToken(), value, mutator);
+		return node;
+	}
+
+	/**
+	 * Add a value to a JSON value, modifying it in place
+	 *
+	 * <p>
+	 * The value is inserted as is; it is up to the caller to make sure it is
+	 * not shared with anything else. This is also used by {@code copy} and
+	 * {@code move}.
+	 * </p>
+	 *
+	 * @param path
+	 *            where to add the value
+	 * @param value
+	 *            the value to add
+	 * @param node
+	 *            the value to patch
+	 * @param mutator
+	 *            the mutator to perform changes with
+	 * @return the patched value
+	 * @throws JsonPatchException
+	 *             value cannot be added at this path
+	 */
+	static JsonNode addValue(final JsonPointer path, final JsonNode value, final JsonNode node,
+			final NodeMutator mutator) throws JsonPatchException {
 		if (path.isEmpty())
 			return value;
 
@@ -129,9 +222,9 @@ public final class AddOperation extends PathValueOperation {
 				 */
 
 				if (preexistingPath.get(node).isArray()) {
-					return addToArray(node, preexistingPath, newValue);
+					return addToArray(node, preexistingPath, newValue, mutator);
 				} else {
-					return addToObject(node, preexistingPath, newValue);
+					return addToObject(node, preexistingPath, newValue, mutator);
 				}
 
 			} catch (JsonPointerException e) {
@@ -143,7 +236,8 @@ public final class AddOperation extends PathValueOperation {
 			if (!parentNode.isValueNode())
 				throw new JsonPatchException(BUNDLE.getMessage("jsonPatch.parentNotContainer"));
 		}
-		return parentNode.isArray() ? addToArray(path, node) : addToObject(path, node);
+		return parentNode.isArray() ? addToArray(path, value, node, mutator)
+				: addToObject(path, value, node, mutator);
 	}
 
 	/**
@@ -152,61 +246,78 @@ public final class AddOperation extends PathValueOperation {
 	 * @param node
 	 * @param newPath
 	 * @param newValue
+	 * @param mutator
 	 * @return
 	 */
-	private JsonNode addToArray(JsonNode node, JsonPointer newPath, JsonNode newValue) {
+	private static JsonNode addToArray(JsonNode node, JsonPointer newPath, JsonNode newValue,
+			final NodeMutator mutator) {
 
-		final JsonNode ret = node.deepCopy();
-		final ArrayNode target = (ArrayNode) newPath.get(ret);
-		target.add(newValue);
+		final ArrayNode target = (ArrayNode) newPath.get(node);
+		mutator.add(target, newValue);
 
-		return ret;
+		return node;
 	}
 
-	private JsonNode addToArray(final JsonPointer path, final JsonNode node) throws JsonPatchException {
-		final JsonNode ret = node.deepCopy();
-		final ArrayNode target = (ArrayNode) path.parent().get(ret);
-
-		List<JsonNode> existingValues = Lists.newArrayList(target);
-		// check duplicate
-		if (!existingValues.contains(value)) {
-			final TokenResolver<JsonNode> token = Iterables.getLast(path);
-
-			if (token.getToken().equals(LAST_ARRAY_ELEMENT)) {
-				target.add(value);
-				return ret;
-			}
+	private static JsonNode addToArray(final JsonPointer path, final JsonNode value, final JsonNode node,
+			final NodeMutator mutator) throws JsonPatchException {
+		final ArrayNode target = (ArrayNode) path.parent().get(node);
+		final String token = Iterables.getLast(path).getToken().getRaw();
+		addToArray(target, arrayAddIndex(token), value, mutator);
+		return node;
+	}
 
-			final int size = target.size();
-			final int index;
-			try {
-				index = Integer.parseInt(token.toString());
-			} catch (NumberFormatException ignored) {
-				throw new JsonPatchException(BUNDLE.getMessage("jsonPatch.notAnIndex"));
-			}
+	/**
+	 * Where to add a value in an array, as designated by a raw reference token
+	 *
+	 * @param token
+	 *            the token
+	 * @return the index, or one of {@link #APPEND}, {@link #NOT_AN_INDEX} or
+	 *         {@link #NEGATIVE_INDEX}
+	 */
+	static int arrayAddIndex(final String token) {
+		if (token.equals(LAST_ARRAY_ELEMENT.getRaw()))
+			return APPEND;
+		try {
+			final int index = Integer.parseInt(token);
+			return index < 0 ? NEGATIVE_INDEX : index;
+		} catch (NumberFormatException ignored) {
+			return NOT_AN_INDEX;
+		}
+	}
 
-			if (index < 0 || index > size)
-				throw new JsonPatchException(BUNDLE.getMessage("jsonPatch.noSuchIndex"));
+	private static void addToArray(final ArrayNode target, final int index, final JsonNode value,
+			final NodeMutator mutator) throws JsonPatchException {
+		// check duplicate
+		if (mutator.contains(target, value))
+			return;
 
-			target.insert(index, value);
+		if (index == APPEND) {
+			mutator.add(target, value);
+			return;
 		}
+		if (index == NOT_AN_INDEX)
+			throw new JsonPatchException(BUNDLE.getMessage("jsonPatch.notAnIndex"));
+		if (index == NEGATIVE_INDEX || index > target.size())
+			throw new JsonPatchException(BUNDLE.getMessage("jsonPatch.noSuchIndex"));
 
-		return ret;
+		mutator.insert(target, index, value);
 	}
 
-	private JsonNode addToObject(final JsonPointer path, final JsonNode node) throws JsonPatchException {
-		final JsonNode ret = node.deepCopy();
-		final ObjectNode target = (ObjectNode) path.parent().get(ret);
+	private static JsonNode addToObject(final JsonPointer path, final JsonNode value, final JsonNode node,
+			final NodeMutator mutator) throws JsonPatchException {
+		final ObjectNode target = (ObjectNode) path.parent().get(node);
+		addToObject(target, Iterables.getLast(path).getToken().getRaw(), value, mutator);
+		return node;
+	}
 
-		String lastOfPath = Iterables.getLast(path).getToken().getRaw();
-		if (lastOfPath.equals("-")) {
+	private static void addToObject(final ObjectNode target, final String name, final JsonNode value,
+			final NodeMutator mutator) throws JsonPatchException {
+		if (name.equals(LAST_ARRAY_ELEMENT.getRaw())) {
 			if (value.isArray()) {
 				throw new JsonPatchException(BUNDLE.getMessage("jsonPatch.noSuchIndex"));
 			}
 		}
-		target.put(lastOfPath, value);
-
-		return ret;
+		mutator.put(target, name, value);
 	}
 
 	/**
@@ -215,13 +326,14 @@ public final class AddOperation extends PathValueOperation {
 	 * @param node
 	 * @param newPath
 	 * @param newValue
+	 * @param mutator
 	 * @return
 	 * @throws JsonPatchException
 	 */
-	private JsonNode addToObject(JsonNode node, JsonPointer newPath, JsonNode newValue) throws JsonPatchException {
+	private static JsonNode addToObject(JsonNode node, JsonPointer newPath, JsonNode newValue,
+			final NodeMutator mutator) throws JsonPatchException {
 
-		final JsonNode ret = node.deepCopy();
-		JsonNode target = objectMapper.createObjectNode();
+		JsonNode target;
 
 		if (newPath.isEmpty()) {
 
@@ -230,15 +342,15 @@ public final class AddOperation extends PathValueOperation {
 			} else {
 				List<String> fieldNames = Lists.newArrayList(newValue.fieldNames());
 				for (String fieldName : fieldNames) {
-					((ObjectNode) ret).put(fieldName, newValue.get(fieldName));
+					mutator.put((ObjectNode) node, fieldName, newValue.get(fieldName));
 				}
 			}
 		} else {
 			String lastOfPath = Iterables.getLast(newPath).getToken().getRaw();
-			if (newPath.get(ret).isObject()) {
-				target = newPath.get(ret);
+			if (newPath.get(node).isObject()) {
+				target = newPath.get(node);
 			} else {
-				target = newPath.parent().get(ret);
+				target = newPath.parent().get(node);
 			}
 
 			if (lastOfPath.equals("-")) {
@@ -250,21 +362,21 @@ public final class AddOperation extends PathValueOperation {
 					// All the Field names to List
 					List<String> fieldNames = Lists.newArrayList(newValue.fieldNames());
 					for (String fieldName : fieldNames) {
-						((ObjectNode) target).put(fieldName, newValue.get(fieldName));
+						mutator.put((ObjectNode) target, fieldName, newValue.get(fieldName));
 					}
 				} else {
 					throw new JsonPatchException(BUNDLE.getMessage("jsonPatch.noSuchIndex"));
 				}
 			} else {
-				((ObjectNode) target).put(lastOfPath, newValue);
+				mutator.put((ObjectNode) target, lastOfPath, newValue);
 			}
 
 		}
-		return ret;
+		return node;
 
 	}
 
-	private JsonPointer pathExistUpto(final JsonNode node, final JsonPointer path) {
+	private static JsonPointer pathExistUpto(final JsonNode node, final JsonPointer path) {
 		JsonPointer newPath = path;
 		if (!newPath.isEmpty()) {
 			JsonNode valueAtPath = path.path(node);
@@ -283,14 +395,14 @@ public final class AddOperation extends PathValueOperation {
 	 * @param path
 	 * @return
 	 */
-	private JsonNode pathBuilder(JsonPointer path, JsonNode value) {
+	private static JsonNode pathBuilder(JsonPointer path, JsonNode value) {
 
 		if (!path.isEmpty()) {
 			String lastOfPath = Iterables.getLast(path).getToken().getRaw();
 			path = path.parent();
 
-			ArrayNode childArrayNode = objectMapper.createArrayNode();
-			JsonNode childObjectNode = objectMapper.createObjectNode();
+			ArrayNode childArrayNode = FACTORY.arrayNode();
+			JsonNode childObjectNode = FACTORY.objectNode();
 
 			if (lastOfPath.matches("[0-9]+") || (lastOfPath.equals("-"))) {
 				childArrayNode.add(value);
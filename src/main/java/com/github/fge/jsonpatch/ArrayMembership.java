@@ -0,0 +1,284 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Membership indices of arrays, used by {@code add} to skip values which an
+ * array already contains
+ *
+ * <p>The first time an array is checked, its elements are scanned; the second
+ * time, its elements are indexed by hash, and this and later checks against
+ * the same array are hash lookups. A patch adding many values to one array
+ * therefore costs time proportional to the number of values added, not to
+ * that number times the length of the array, while single additions cost no
+ * more than a scan.</p>
+ *
+ * <p>Equality is that of {@link JsonNode#equals(Object)}; the hash is computed
+ * here rather than with {@link JsonNode#hashCode()}, which combines object
+ * members in a way that makes objects differing by a few small numbers
+ * collide. Hashes of containers are memoized by identity, and each container
+ * hashed is mapped to its parent, or to its array if it is an element of an
+ * indexed array.</p>
+ *
+ * <p>The owner of this class reports every change to the document. Values
+ * added to or removed from an indexed array are added to or removed from its
+ * index. When a container is modified, the memoized hashes of it and of its
+ * ancestors are forgotten, and the elements of indexed arrays among these
+ * ancestors are rehashed and moved in their index; rehashing only walks the
+ * containers whose hash was forgotten. The document is assumed to be a tree:
+ * a container appears only once in it. Memoized hashes of removed containers
+ * are kept until the end of the patch application.</p>
+ *
+ * <p>One instance is used per patch application; it is not thread safe.</p>
+ */
+final class ArrayMembership
+{
+    private final Set<ArrayNode> scanned = Sets.newIdentityHashSet();
+
+    /*
+     * Elements of indexed arrays by hash, and the indexed array each container
+     * element is in
+     */
+    private final Map<ArrayNode, Map<Integer, List<JsonNode>>> indices
+        = new IdentityHashMap<ArrayNode, Map<Integer, List<JsonNode>>>();
+    private final Map<JsonNode, ArrayNode> elementOf
+        = new IdentityHashMap<JsonNode, ArrayNode>();
+
+    /*
+     * Memoized hashes of containers, and parents of the containers they were
+     * computed from
+     */
+    private final Map<JsonNode, Integer> hashes
+        = new IdentityHashMap<JsonNode, Integer>();
+    private final Map<JsonNode, JsonNode> parents
+        = new IdentityHashMap<JsonNode, JsonNode>();
+
+    /**
+     * Tell whether an array has an element equal to a value
+     *
+     * @param array the array
+     * @param value the value
+     * @return true if an element is equal to the value
+     */
+    boolean contains(final ArrayNode array, final JsonNode value)
+    {
+        Map<Integer, List<JsonNode>> index = indices.get(array);
+
+        if (index == null) {
+            if (scanned.add(array)) {
+                for (final JsonNode element: array)
+                    if (value.equals(element))
+                        return true;
+                return false;
+            }
+            index = Maps.newHashMap();
+            indices.put(array, index);
+            for (final JsonNode element: array)
+                enter(array, index, element);
+        }
+
+        final List<JsonNode> bucket = index.get(hash(value));
+        if (bucket == null)
+            return false;
+        for (final JsonNode element: bucket)
+            if (value.equals(element))
+                return true;
+        return false;
+    }
+
+    /**
+     * Record a value added to an array
+     *
+     * @param array the array
+     * @param value the value
+     */
+    void added(final ArrayNode array, final JsonNode value)
+    {
+        modified(array);
+        final Map<Integer, List<JsonNode>> index = indices.get(array);
+        if (index != null)
+            enter(array, index, value);
+    }
+
+    /**
+     * Record an element removed from an array
+     *
+     * @param array the array
+     * @param old the removed element
+     */
+    void removed(final ArrayNode array, final JsonNode old)
+    {
+        modified(array);
+        final Map<Integer, List<JsonNode>> index = indices.get(array);
+        if (index == null)
+            return;
+        if (elementOf.get(old) == array)
+            elementOf.remove(old);
+        leave(index, old, hash(old));
+    }
+
+    /**
+     * Record a modification of a container other than by {@link
+     * #added(ArrayNode, JsonNode)} or {@link #removed(ArrayNode, JsonNode)}
+     *
+     * @param container the container
+     */
+    void modified(final JsonNode container)
+    {
+        /*
+         * Forget hashes from the container up; elements of indexed arrays on
+         * the way are rehashed as they are reached, so that outer elements
+         * are rehashed using the new hashes of inner ones
+         */
+        JsonNode node = container;
+        Integer old;
+        ArrayNode array;
+        Map<Integer, List<JsonNode>> index;
+
+        while (node != null) {
+            old = hashes.remove(node);
+            array = elementOf.get(node);
+            if (array == null) {
+                node = parents.get(node);
+                continue;
+            }
+            if (old != null) {
+                index = indices.get(array);
+                leave(index, node, old);
+                join(index, node);
+            }
+            node = array;
+        }
+    }
+
+    private void enter(final ArrayNode array,
+        final Map<Integer, List<JsonNode>> index, final JsonNode element)
+    {
+        if (element.isContainerNode()) {
+            elementOf.put(element, array);
+            parents.remove(element);
+        }
+        join(index, element);
+    }
+
+    private void join(final Map<Integer, List<JsonNode>> index,
+        final JsonNode element)
+    {
+        final int hash = hash(element);
+        List<JsonNode> bucket = index.get(hash);
+        if (bucket == null) {
+            bucket = Lists.newArrayListWithCapacity(1);
+            index.put(hash, bucket);
+        }
+        bucket.add(element);
+    }
+
+    /*
+     * Remove an element from its bucket; equal scalars are interchangeable,
+     * containers are removed by identity
+     */
+    private static void leave(final Map<Integer, List<JsonNode>> index,
+        final JsonNode element, final int hash)
+    {
+        final List<JsonNode> bucket = index.get(hash);
+        if (bucket == null)
+            return;
+        final Iterator<JsonNode> iterator = bucket.iterator();
+        JsonNode candidate;
+        while (iterator.hasNext()) {
+            candidate = iterator.next();
+            if (candidate == element || !element.isContainerNode()
+                && element.equals(candidate)) {
+                iterator.remove();
+                break;
+            }
+        }
+        if (bucket.isEmpty())
+            index.remove(hash);
+    }
+
+    /*
+     * Objects are hashed independently of the order of their members, as
+     * they are compared; member names and values, as well as the final hash,
+     * are mixed so that small differences spread over all bits
+     */
+    private int hash(final JsonNode node)
+    {
+        if (!node.isContainerNode())
+            return node.hashCode();
+
+        final Integer known = hashes.get(node);
+        if (known != null)
+            return known;
+
+        int ret = node.isArray() ? 1 : 2;
+
+        if (node.isArray()) {
+            for (final JsonNode element: node)
+                ret = 31 * ret + child(node, element);
+        } else {
+            final Iterator<Map.Entry<String, JsonNode>> iterator
+                = node.fields();
+            Map.Entry<String, JsonNode> entry;
+            while (iterator.hasNext()) {
+                entry = iterator.next();
+                ret += mix(31 * entry.getKey().hashCode()
+                    + child(node, entry.getValue()));
+            }
+        }
+
+        ret = mix(ret);
+        hashes.put(node, ret);
+        return ret;
+    }
+
+    private int child(final JsonNode parent, final JsonNode child)
+    {
+        if (child.isContainerNode() && !elementOf.containsKey(child))
+            parents.put(child, parent);
+        return hash(child);
+    }
+
+    /*
+     * The finalizer of MurmurHash3
+     */
+    private static int mix(final int hash)
+    {
+        int ret = hash;
+        ret ^= ret >>> 16;
+        ret *= 0x85ebca6b;
+        ret ^= ret >>> 13;
+        ret *= 0xc2b2ae35;
+        ret ^= ret >>> 16;
+        return ret;
+    }
+}
@@ -27,11 +27,8 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.SerializerProvider;
 import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
-import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.MissingNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.github.fge.jackson.jsonpointer.JsonPointer;
-import com.google.common.collect.Iterables;
 
 import java.io.IOException;
 
@@ -59,14 +56,31 @@ public final class ArrayObjectRemoveOperation
         if (path.path(node).isMissingNode())
             throw new JsonPatchException(BUNDLE.getMessage(
                 "jsonPatch.noSuchPath"));
-        final JsonNode ret = node.deepCopy();
-        final JsonNode parentNode = path.parent().get(ret);
-        final String raw = Iterables.getLast(path).getToken().getRaw();
-        if (parentNode.isObject())
-            ((ObjectNode) parentNode).remove(raw);
-        else
-            ((ArrayNode) parentNode).remove(Integer.parseInt(raw));
-        return ret;
+        return RemoveOperation.removeValue(path, node.deepCopy(),
+            new NodeMutator());
+    }
+
+    @Override
+    JsonNode applyInPlace(final JsonPointer path, final JsonNode node,
+        final NodeMutator mutator)
+        throws JsonPatchException
+    {
+        return RemoveOperation.removeValue(path, node, mutator);
+    }
+
+    @Override
+    CompiledOperation compile()
+    {
+        final ParsedPointer pointer = new ParsedPointer(path);
+        return new CompiledOperation()
+        {
+            @Override
+            JsonNode apply(final JsonNode node, final NodeMutator mutator)
+                throws JsonPatchException
+            {
+                return RemoveOperation.removeValue(pointer, node, mutator);
+            }
+        };
     }
 
     
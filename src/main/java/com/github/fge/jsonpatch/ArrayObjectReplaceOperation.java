@@ -21,10 +21,7 @@ package com.github.fge.jsonpatch;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.github.fge.jackson.jsonpointer.JsonPointer;
-import com.google.common.collect.Iterables;
 
 /**
  * JSON Patch {@code replace} operation
@@ -59,16 +56,27 @@ public final class ArrayObjectReplaceOperation extends PathOldNewValueOperation
 		 */
 		if (path.path(node).isMissingNode())
 			throw new JsonPatchException(BUNDLE.getMessage("jsonPatch.noSuchPath"));
-		final JsonNode replacement = oldValue.deepCopy();
 		if (path.isEmpty())
-			return replacement;
-		final JsonNode ret = node.deepCopy();
-		final JsonNode parent = path.parent().get(ret);
-		final String rawToken = Iterables.getLast(path).getToken().getRaw();
-		if (parent.isObject())
-			((ObjectNode) parent).set(rawToken, replacement);
-		else
-			((ArrayNode) parent).set(Integer.parseInt(rawToken), replacement);
-		return ret;
+			return oldValue.deepCopy();
+		return ReplaceOperation.replaceValue(path, oldValue.deepCopy(), node.deepCopy(), new NodeMutator());
+	}
+
+	@Override
+	JsonNode applyInPlace(final JsonPointer path, final JsonNode node, final NodeMutator mutator)
+			throws JsonPatchException {
+		if (path.path(node).isMissingNode())
+			throw new JsonPatchException(BUNDLE.getMessage("jsonPatch.noSuchPath"));
+		return ReplaceOperation.replaceValue(path, oldValue.deepCopy(), node, mutator);
+	}
+
+	@Override
+	CompiledOperation compile() {
+		final ParsedPointer pointer = new ParsedPointer(path);
+		return new CompiledOperation() {
+			@Override
+			JsonNode apply(final JsonNode node, final NodeMutator mutator) throws JsonPatchException {
+				return ReplaceOperation.replaceValue(pointer, oldValue, node, mutator);
+			}
+		};
 	}
 }
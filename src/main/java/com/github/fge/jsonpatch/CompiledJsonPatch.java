@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+
+package com.github.fge.jsonpatch;
+
+import java.util.List;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+
+/**
+ * A JSON Patch prepared for repeated application
+ *
+ * <p>
+ * Instances are obtained with {@link JsonPatch#compile()}. All pointers of the
+ * patch are parsed once, when compiling: reference tokens, array indices and
+ * the {@code -} array marker. Applying the patch then only walks the document
+ * and performs the mutations themselves; nothing is allocated beyond the
+ * values inserted into the document.
+ * </p>
+ *
+ * <p>
+ * Results are the same as those of {@link JsonPatch#apply(JsonNode)}.
+ * Operation locators ({@code value_locator}) are not taken into account.
+ * </p>
+ *
+ * <p>
+ * Instances are immutable and thread safe: the same compiled patch may be
+ * applied to different values by several threads at once.
+ * </p>
+ */
+public final class CompiledJsonPatch {
+	private static final MessageBundle BUNDLE = MessageBundles.getBundle(JsonPatchMessages.class);
+
+	private final CompiledOperation[] operations;
+
+	CompiledJsonPatch(final List<JsonPatchOperation> operations) {
+		this.operations = new CompiledOperation[operations.size()];
+		for (int i = 0; i < this.operations.length; i++)
+			this.operations[i] = operations.get(i).compile();
+	}
+
+	/**
+	 * Apply this patch to a JSON value
+	 *
+	 * <p>
+	 * The input is copied once, and operations are applied to the copy; the
+	 * input is left untouched.
+	 * </p>
+	 *
+	 * @param node
+	 *            the value to apply the patch to
+	 * @return the patched JSON value
+	 * @throws JsonPatchException
+	 *             failed to apply patch
+	 * @throws NullPointerException
+	 *             input is null
+	 */
+	public JsonNode apply(final JsonNode node) throws JsonPatchException {
+		BUNDLE.checkNotNull(node, "jsonPatch.nullInput");
+		return applyOperations(node.deepCopy(), new NodeMutator());
+	}
+
+	/**
+	 * Apply this patch to a JSON value, modifying it in place
+	 *
+	 * <p>
+	 * If an operation fails, the input is restored as it was before the call;
+	 * see {@link JsonPatch#applyTransactionally(JsonNode)}.
+	 * </p>
+	 *
+	 * @param node
+	 *            the value to apply the patch to
+	 * @return the patched JSON value
+	 * @throws JsonPatchException
+	 *             failed to apply patch; the input is left unchanged
+	 * @throws NullPointerException
+	 *             input is null
+	 */
+	public JsonNode applyTransactionally(final JsonNode node) throws JsonPatchException {
+		BUNDLE.checkNotNull(node, "jsonPatch.nullInput");
+		final UndoJournal journal = new UndoJournal();
+		try {
+			return applyOperations(node, journal);
+		} catch (JsonPatchException e) {
+			journal.rollback();
+			throw e;
+		} catch (RuntimeException e) {
+			journal.rollback();
+			throw e;
+		}
+	}
+
+	private JsonNode applyOperations(final JsonNode node, final NodeMutator mutator) throws JsonPatchException {
+		JsonNode ret = node;
+		for (final CompiledOperation operation : operations)
+			ret = operation.apply(ret, mutator);
+		return ret;
+	}
+}
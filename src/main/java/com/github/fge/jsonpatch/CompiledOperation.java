@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+
+package com.github.fge.jsonpatch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * One operation of a {@link CompiledJsonPatch}
+ *
+ * <p>Implementations are obtained from {@link JsonPatchOperation#compile()};
+ * they must be immutable, and must not modify the values they were compiled
+ * from, since they can be applied by several threads at once.</p>
+ */
+abstract class CompiledOperation
+{
+    /**
+     * Apply this operation to a JSON value, modifying it in place
+     *
+     * @param node the value to patch
+     * @param mutator the mutator to perform changes with
+     * @return the patched value
+     * @throws JsonPatchException operation failed to apply to this value
+     * @see JsonPatchOperation#applyInPlace(JsonNode, NodeMutator)
+     */
+    abstract JsonNode apply(final JsonNode node, final NodeMutator mutator)
+        throws JsonPatchException;
+}
@@ -53,11 +53,40 @@ public final class CopyOperation
     @Override
     public JsonNode apply(final JsonNode node)
         throws JsonPatchException
+    {
+        return applyInPlace(node.deepCopy(), new NodeMutator());
+    }
+
+    @Override
+    JsonNode applyInPlace(final JsonPointer path, final JsonNode node,
+        final NodeMutator mutator)
+        throws JsonPatchException
     {
         final JsonNode dupData = from.path(node).deepCopy();
         if (dupData.isMissingNode())
             throw new JsonPatchException(BUNDLE.getMessage(
                 "jsonPatch.noSuchPath"));
-        return new AddOperation(path, dupData).apply(node);
+        return AddOperation.addValue(path, dupData, node, mutator);
+    }
+
+    @Override
+    CompiledOperation compile()
+    {
+        final ParsedPointer fromPointer = new ParsedPointer(from);
+        final ParsedPointer pointer = new ParsedPointer(path);
+        return new CompiledOperation()
+        {
+            @Override
+            JsonNode apply(final JsonNode node, final NodeMutator mutator)
+                throws JsonPatchException
+            {
+                final JsonNode dupData = fromPointer.get(node);
+                if (dupData == null)
+                    throw new JsonPatchException(BUNDLE.getMessage(
+                        "jsonPatch.noSuchPath"));
+                return AddOperation.addValue(pointer, dupData.deepCopy(), node,
+                    mutator);
+            }
+        };
     }
 }
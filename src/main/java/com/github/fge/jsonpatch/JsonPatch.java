@@ -20,18 +20,20 @@
 package com.github.fge.jsonpatch;
 
 import java.io.IOException;
-import java.util.HashMap;
+import java.io.InputStream;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.JsonSerializable;
 import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
 import com.github.fge.jackson.JacksonUtils;
 import com.github.fge.jackson.jsonpointer.JsonPointer;
@@ -39,7 +41,6 @@ import com.github.fge.msgsimple.bundle.MessageBundle;
 import com.github.fge.msgsimple.load.MessageBundles;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
-import com.google.common.collect.Lists;
 
 /**
  * Implementation of JSON Patch
@@ -116,7 +117,7 @@ import com.google.common.collect.Lists;
 public final class JsonPatch implements JsonSerializable {
 	private static final MessageBundle BUNDLE = MessageBundles.getBundle(JsonPatchMessages.class);
 
-	Logger logger = LoggerFactory.getLogger(JsonPatch.class);
+	static final Logger logger = LoggerFactory.getLogger(JsonPatch.class);
 	/**
 	 * List of operations
 	 */
@@ -154,6 +155,64 @@ public final class JsonPatch implements JsonSerializable {
 		return JacksonUtils.getReader().withType(JsonPatch.class).readValue(node);
 	}
 
+	/**
+	 * Read a JSON Patch from a token stream
+	 *
+	 * <p>
+	 * Unlike {@link #fromJson(JsonNode)}, the patch is not first read into a
+	 * tree: operations are built as their members are read, and their values
+	 * are not copied.
+	 * </p>
+	 *
+	 * <p>
+	 * The parser must be positioned either on the start of the patch array or
+	 * just before it; it is left on the end of the array.
+	 * </p>
+	 *
+	 * @param parser
+	 *            the parser
+	 * @return a JSON Patch
+	 * @throws IOException
+	 *             read error, or input is not a valid JSON patch
+	 * @throws NullPointerException
+	 *             input is null
+	 */
+	public static JsonPatch fromParser(final JsonParser parser) throws IOException {
+		BUNDLE.checkNotNull(parser, "jsonPatch.nullInput");
+		final JsonPatchOperationReader reader = new JsonPatchOperationReader(parser);
+		final ImmutableList.Builder<JsonPatchOperation> builder = ImmutableList.builder();
+		JsonPatchOperation operation;
+		while ((operation = reader.next()) != null)
+			builder.add(operation);
+		return new JsonPatch(builder.build());
+	}
+
+	/**
+	 * Read a JSON Patch from an input stream
+	 *
+	 * <p>
+	 * The stream is closed when this method returns.
+	 * </p>
+	 *
+	 * @param in
+	 *            the input stream
+	 * @return a JSON Patch
+	 * @throws IOException
+	 *             read error, or input is not a valid JSON patch
+	 * @throws NullPointerException
+	 *             input is null
+	 * @see #fromParser(JsonParser)
+	 */
+	public static JsonPatch fromStream(final InputStream in) throws IOException {
+		BUNDLE.checkNotNull(in, "jsonPatch.nullInput");
+		final JsonParser parser = JacksonUtils.getReader().getFactory().createParser(in);
+		try {
+			return fromParser(parser);
+		} finally {
+			parser.close();
+		}
+	}
+
 	/**
 	 * Apply this patch to a JSON value
 	 *
@@ -174,111 +233,340 @@ public final class JsonPatch implements JsonSerializable {
 		return ret;
 	}
 
+	/**
+	 * Compile this patch for repeated application
+	 *
+	 * <p>
+	 * The result is immutable and may be shared between threads; applying it
+	 * avoids parsing the pointers of all operations again every time.
+	 * </p>
+	 *
+	 * @return a compiled patch
+	 * @see CompiledJsonPatch
+	 */
+	public CompiledJsonPatch compile() {
+		return new CompiledJsonPatch(operations);
+	}
+
+	/**
+	 * Apply this patch to a JSON value, copying it only once
+	 *
+	 * <p>
+	 * Where {@link #apply(JsonNode)} lets each operation produce a new copy of
+	 * the value, this method makes a single copy of the input and then has all
+	 * operations modify that copy in place. The input is left untouched, and
+	 * the result is the same as with {@link #apply(JsonNode)}.
+	 * </p>
+	 *
+	 * @param node
+	 *            the value to apply the patch to
+	 * @return the patched JSON value
+	 * @throws JsonPatchException
+	 *             failed to apply patch
+	 * @throws NullPointerException
+	 *             input is null
+	 */
+	public JsonNode applyInPlace(final JsonNode node) throws JsonPatchException {
+		BUNDLE.checkNotNull(node, "jsonPatch.nullInput");
+		final NodeMutator mutator = new NodeMutator();
+		JsonNode ret = node.deepCopy();
+		for (final JsonPatchOperation operation : operations)
+			ret = operation.applyInPlace(ret, mutator);
+
+		return ret;
+	}
+
+	/**
+	 * Apply this patch to a JSON value, modifying it in place
+	 *
+	 * <p>
+	 * No copy of the input is made: all operations modify it directly. Every
+	 * modification is recorded in an undo journal, so that if an operation
+	 * fails, all modifications made by previous operations are reverted
+	 * before the exception is thrown; the input is then exactly as it was
+	 * before the call.
+	 * </p>
+	 *
+	 * <p>
+	 * The return value must be used, since an operation on the root of the
+	 * document (ie, with an empty path) replaces it altogether.
+	 * </p>
+	 *
+	 * @param node
+	 *            the value to apply the patch to
+	 * @return the patched JSON value
+	 * @throws JsonPatchException
+	 *             failed to apply patch; the input is left unchanged
+	 * @throws NullPointerException
+	 *             input is null
+	 */
+	public JsonNode applyTransactionally(final JsonNode node) throws JsonPatchException {
+		BUNDLE.checkNotNull(node, "jsonPatch.nullInput");
+		final UndoJournal journal = new UndoJournal();
+		JsonNode ret = node;
+		try {
+			for (final JsonPatchOperation operation : operations)
+				ret = operation.applyInPlace(ret, journal);
+		} catch (JsonPatchException e) {
+			journal.rollback();
+			throw e;
+		} catch (RuntimeException e) {
+			journal.rollback();
+			throw e;
+		}
+
+		return ret;
+	}
+
 	/**
 	 * Apply this patch to a JSON value
 	 *
+	 * <p>
+	 * The path of an operation with a {@code value_locator} is resolved against
+	 * the value being patched when the operation is reached, by looking for the
+	 * array element whose members match those of the locator. Resolved paths
+	 * only live for the duration of the call: operations are never
+	 * modified, so the same patch can be applied by several threads at once.
+	 * </p>
+	 *
 	 * @param node
 	 *            the value to apply the patch to
+	 * @param performStrictValidation
+	 *            whether an operation whose value cannot be located is an
+	 *            error, rather than being skipped
 	 * @return the patched JSON value
 	 * @throws JsonPatchException
 	 *             failed to apply patch
 	 */
 	public JsonNode apply(final JsonNode node, final boolean performStrictValidation) throws JsonPatchException {
+		return apply(node, performStrictValidation, new LocatorStatistics());
+	}
+
+	/**
+	 * Apply this patch to a JSON value, collecting statistics
+	 *
+	 * <p>
+	 * Same as {@link #apply(JsonNode, boolean)}; in addition, the given
+	 * statistics are updated with the behavior of the {@code value_locator}
+	 * cache during the call.
+	 * </p>
+	 *
+	 * @param node
+	 *            the value to apply the patch to
+	 * @param performStrictValidation
+	 *            whether an operation whose value cannot be located is an
+	 *            error, rather than being skipped
+	 * @param statistics
+	 *            the statistics to update
+	 * @return the patched JSON value
+	 * @throws JsonPatchException
+	 *             failed to apply patch
+	 * @throws NullPointerException
+	 *             input is null
+	 */
+	public JsonNode apply(final JsonNode node, final boolean performStrictValidation,
+			final LocatorStatistics statistics) throws JsonPatchException {
+		BUNDLE.checkNotNull(node, "jsonPatch.nullInput");
+		return applyStream(operations.iterator(), node, performStrictValidation, statistics);
+	}
+
+	/**
+	 * Apply a stream of operations to a JSON value
+	 *
+	 * <p>
+	 * Operations are consumed one at a time and applied as they come, exactly
+	 * as {@link #apply(JsonNode, boolean)} would apply them: no operation is
+	 * kept once applied, so the memory used only depends on the value being
+	 * patched, however many operations there are. The input is copied once and
+	 * left untouched.
+	 * </p>
+	 *
+	 * @param operations
+	 *            the operations
+	 * @param node
+	 *            the value to apply the operations to
+	 * @param performStrictValidation
+	 *            whether an operation whose value cannot be located is an
+	 *            error, rather than being skipped
+	 * @return the patched JSON value
+	 * @throws JsonPatchException
+	 *             failed to apply an operation
+	 * @throws NullPointerException
+	 *             input is null
+	 */
+	public static JsonNode applyStream(final Iterator<? extends JsonPatchOperation> operations, final JsonNode node,
+			final boolean performStrictValidation) throws JsonPatchException {
+		return applyStream(operations, node, performStrictValidation, new LocatorStatistics());
+	}
+
+	/**
+	 * Apply a stream of operations to a JSON value, collecting statistics
+	 *
+	 * <p>
+	 * Same as {@link #applyStream(Iterator, JsonNode, boolean)}; in addition,
+	 * the given statistics are updated with the behavior of the {@code
+	 * value_locator} cache during the call.
+	 * </p>
+	 *
+	 * @param operations
+	 *            the operations
+	 * @param node
+	 *            the value to apply the operations to
+	 * @param performStrictValidation
+	 *            whether an operation whose value cannot be located is an
+	 *            error, rather than being skipped
+	 * @param statistics
+	 *            the statistics to update
+	 * @return the patched JSON value
+	 * @throws JsonPatchException
+	 *             failed to apply an operation
+	 * @throws NullPointerException
+	 *             input is null
+	 */
+	public static JsonNode applyStream(final Iterator<? extends JsonPatchOperation> operations, final JsonNode node,
+			final boolean performStrictValidation, final LocatorStatistics statistics) throws JsonPatchException {
+		BUNDLE.checkNotNull(statistics, "jsonPatch.nullInput");
+		return applyStream(operations, node, performStrictValidation, new LocatorCache(statistics));
+	}
+
+	static JsonNode applyStream(final Iterator<? extends JsonPatchOperation> operations, final JsonNode node,
+			final boolean performStrictValidation, final LocatorCache cache) throws JsonPatchException {
+		BUNDLE.checkNotNull(operations, "jsonPatch.nullInput");
 		BUNDLE.checkNotNull(node, "jsonPatch.nullInput");
 		JsonNode ret = node.deepCopy();
-		for (final JsonPatchOperation operation : operations) {
-			JsonPointer path = operation.getPath();
-			JsonNode valueLocator = operation.getValue_locator();
-			// path and value Locator cannot be null
-			/*
-			 * valueLocator should be present and should be an ObjectNode always
-			 */
-			if ((path != null) && ((valueLocator != null) && valueLocator.isObject())) {
-				JsonPointer newPath = pathFixer(path, ret, valueLocator, performStrictValidation);
-				if (newPath == null) {
-					operation.path = null;
-
-				} else {
-					operation.path = newPath;
-					operation.value_locator = null;
-				}
-			}
-			if (operation.path != null) {
-				ret = operation.apply(ret);
+		while (operations.hasNext())
+			ret = applyOperation(operations.next(), ret, performStrictValidation, cache);
+		return ret;
+	}
 
-			}
-			operation.path = path;
-			operation.value_locator = valueLocator;
+	/**
+	 * Apply a stream of operations, read from a token stream, to a JSON value
+	 *
+	 * <p>
+	 * Each operation is read, then applied, before the next one is read; see
+	 * {@link #fromParser(JsonParser)} for how operations are read, and
+	 * {@link #applyStream(Iterator, JsonNode, boolean)} for how they are
+	 * applied.
+	 * </p>
+	 *
+	 * @param parser
+	 *            the parser, positioned either on the start of the operation
+	 *            array or just before it
+	 * @param node
+	 *            the value to apply the operations to
+	 * @param performStrictValidation
+	 *            whether an operation whose value cannot be located is an
+	 *            error, rather than being skipped
+	 * @return the patched JSON value
+	 * @throws IOException
+	 *             read error, or input is not a valid JSON patch
+	 * @throws JsonPatchException
+	 *             failed to apply an operation
+	 * @throws NullPointerException
+	 *             input is null
+	 */
+	public static JsonNode applyStream(final JsonParser parser, final JsonNode node,
+			final boolean performStrictValidation) throws IOException, JsonPatchException {
+		return applyStream(parser, node, performStrictValidation, new LocatorStatistics());
+	}
 
-		}
+	/**
+	 * Apply a stream of operations, read from a token stream, to a JSON
+	 * value, collecting statistics
+	 *
+	 * <p>
+	 * Same as {@link #applyStream(JsonParser, JsonNode, boolean)}; in
+	 * addition, the given statistics are updated with the behavior of the
+	 * {@code value_locator} cache during the call.
+	 * </p>
+	 *
+	 * @param parser
+	 *            the parser, positioned either on the start of the operation
+	 *            array or just before it
+	 * @param node
+	 *            the value to apply the operations to
+	 * @param performStrictValidation
+	 *            whether an operation whose value cannot be located is an
+	 *            error, rather than being skipped
+	 * @param statistics
+	 *            the statistics to update
+	 * @return the patched JSON value
+	 * @throws IOException
+	 *             read error, or input is not a valid JSON patch
+	 * @throws JsonPatchException
+	 *             failed to apply an operation
+	 * @throws NullPointerException
+	 *             input is null
+	 */
+	public static JsonNode applyStream(final JsonParser parser, final JsonNode node,
+			final boolean performStrictValidation, final LocatorStatistics statistics)
+			throws IOException, JsonPatchException {
+		BUNDLE.checkNotNull(parser, "jsonPatch.nullInput");
+		BUNDLE.checkNotNull(node, "jsonPatch.nullInput");
+		BUNDLE.checkNotNull(statistics, "jsonPatch.nullInput");
+		final JsonPatchOperationReader reader = new JsonPatchOperationReader(parser);
+		final LocatorCache cache = new LocatorCache(statistics);
+		JsonNode ret = node.deepCopy();
+		JsonPatchOperation operation;
+		while ((operation = reader.next()) != null)
+			ret = applyOperation(operation, ret, performStrictValidation, cache);
 		return ret;
 	}
 
+	private static JsonNode applyOperation(final JsonPatchOperation operation, final JsonNode node,
+			final boolean performStrictValidation, final LocatorCache cache) throws JsonPatchException {
+		JsonPointer path = operation.getPath();
+		final JsonNode valueLocator = operation.getValue_locator();
+		// path and value Locator cannot be null
+		/*
+		 * valueLocator should be present and should be an ObjectNode always
+		 */
+		if ((path != null) && ((valueLocator != null) && valueLocator.isObject()))
+			path = pathFixer(path, node, valueLocator, performStrictValidation, cache);
+		return path == null ? node : operation.applyInPlace(path, node, cache);
+	}
+
 	/**
 	 * This method corrects the path with the help of value_locator
+	 *
+	 * <p>
+	 * The unknown token of the path is replaced with the index of the first
+	 * element of the array matching the locator. Pointers and elements are
+	 * looked up in the given cache rather than resolved and scanned.
+	 * </p>
 	 * 
 	 * @param path
 	 * @param node
 	 * @param valueLocator
 	 * @param performStrictValidation
+	 * @param cache
 	 * @return
 	 * @throws JsonPatchException
 	 */
-	private JsonPointer pathFixer(JsonPointer path, JsonNode node, JsonNode valueLocator,
-			boolean performStrictValidation) throws JsonPatchException {
+	private static JsonPointer pathFixer(JsonPointer path, JsonNode node, JsonNode valueLocator,
+			boolean performStrictValidation, LocatorCache cache) throws JsonPatchException {
 
 		// new JsonPointer to correct the path
 		JsonPointer newPath = path.parent();
-		boolean located = false;
 		boolean unknownLastSecondPartOfPath = false;
 
-		if (newPath.get(node) != null) {
+		if (cache.get(newPath, node) != null) {
 
 			// the "unknown" is at last position
-		} else if (newPath.parent().get(node) != null) {
+		} else if (cache.get(newPath.parent(), node) != null) {
 			newPath = newPath.parent();
 			unknownLastSecondPartOfPath = true;
 		} else {
 			throw new JsonPatchException(BUNDLE.getMessage("jsonPatch.ArrayNodeMissingValue"));
 		}
 
-		final JsonNode presentNode = newPath.get(node);
+		final JsonNode presentNode = cache.get(newPath, node);
 
-		// All the Field names to List
-		List<String> valueLocatorFields = Lists.newArrayList(valueLocator.fieldNames());
-		if (presentNode.isArray()) {
-			/*
-			 * Take all the key:values to match from value_locator to Map.
-			 */
-			Map<String, JsonNode> valueLocatorMap = new HashMap<String, JsonNode>();
-
-			for (String eachFieldName : valueLocatorFields) {
-				valueLocatorMap.put(eachFieldName, valueLocator.get(eachFieldName));
-			}
-			/*
-			 * Take all the key:values to match from given node to Map.
-			 */
-			Map<String, JsonNode> eachNodeMap = new HashMap<String, JsonNode>();
-
-			for (int index = 0; index < presentNode.size(); index++) {
-
-				JsonNode eachParentNode = presentNode.get(index);
-				for (String eachFieldName : valueLocatorFields) {
-					eachNodeMap.put(eachFieldName, eachParentNode.get(eachFieldName));
-				}
-				if (eachNodeMap.equals(valueLocatorMap)) {
-					located = true;
-					newPath = newPath.append(index);
-					if (unknownLastSecondPartOfPath) {
-						String lastOfPath = Iterables.getLast(path).getToken().getRaw();
-						newPath = newPath.append(lastOfPath);
-					}
-				}
-			}
-		} else {
+		if (!presentNode.isArray())
 			throw new JsonPatchException(BUNDLE.getMessage("jsonPatch.ArrayNodeMissingValue"));
-		}
-		if (!located) {
+
+		final int located = cache.indexOf((ArrayNode) presentNode, valueLocator);
+		if (located == -1) {
 			newPath = path;
 			if (performStrictValidation) {
 				throw new JsonPatchException(BUNDLE.getMessage("jsonPatch.noSuchPath"));
@@ -287,6 +575,12 @@ public final class JsonPatch implements JsonSerializable {
 				return null;
 			}
 		}
+
+		newPath = newPath.append(located);
+		if (unknownLastSecondPartOfPath) {
+			String lastOfPath = Iterables.getLast(path).getToken().getRaw();
+			newPath = newPath.append(lastOfPath);
+		}
 		return newPath;
 	}
 
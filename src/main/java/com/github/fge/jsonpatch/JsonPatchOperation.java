@@ -20,6 +20,7 @@
 package com.github.fge.jsonpatch;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonSubTypes;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import com.fasterxml.jackson.databind.JsonNode;
@@ -57,7 +58,7 @@ import static com.fasterxml.jackson.annotation.JsonTypeInfo.*;
  */
 @JsonIgnoreProperties(ignoreUnknown = true)
 public abstract class JsonPatchOperation
-    implements JsonSerializable
+    implements JsonSerializable, Cloneable
 {
     protected static final MessageBundle BUNDLE
         = MessageBundles.getBundle(JsonPatchMessages.class);
@@ -108,6 +109,110 @@ public abstract class JsonPatchOperation
 	public abstract JsonNode apply(final JsonNode node)
 		throws JsonPatchException;
 
+	/**
+	 * Apply this operation to a JSON value, modifying it in place
+	 *
+	 * <p>Unlike {@link #apply(JsonNode)}, the input is not copied: all changes
+	 * are made through the given {@link NodeMutator}. The return value must
+	 * nevertheless be used, since an operation on the root of the document
+	 * replaces it altogether.</p>
+	 *
+	 * @param node the value to patch
+	 * @param mutator the mutator to perform changes with
+	 * @return the patched value
+	 * @throws JsonPatchException operation failed to apply to this value
+	 */
+	JsonNode applyInPlace(final JsonNode node, final NodeMutator mutator)
+		throws JsonPatchException
+	{
+		return applyInPlace(path, node, mutator);
+	}
+
+	/**
+	 * Apply this operation at a given path, modifying the value in place
+	 *
+	 * <p>This is how an operation is applied at a path resolved when the patch
+	 * is applied (see {@link JsonPatch#apply(JsonNode, boolean)}): the path is
+	 * passed along instead of being set on the operation, which can therefore
+	 * be shared between threads.</p>
+	 *
+	 * <p>The default implementation, used by operations defined outside of
+	 * this package, delegates to {@link #apply(JsonPointer, JsonNode)}, which
+	 * leaves the input untouched.</p>
+	 *
+	 * @param path the path to apply the operation at
+	 * @param node the value to patch
+	 * @param mutator the mutator to perform changes with
+	 * @return the patched value
+	 * @throws JsonPatchException operation failed to apply to this value
+	 */
+	JsonNode applyInPlace(final JsonPointer path, final JsonNode node,
+		final NodeMutator mutator)
+		throws JsonPatchException
+	{
+		return apply(path, node);
+	}
+
+	/**
+	 * Apply this operation to a JSON value, at a given path
+	 *
+	 * <p>This is called instead of {@link #apply(JsonNode)} when the path of
+	 * the operation is resolved when the patch is applied, as with a {@code
+	 * value_locator}. This operation is never modified, so that the same
+	 * patch can be applied by several threads at once.</p>
+	 *
+	 * <p>The default implementation applies, with {@link #apply(JsonNode)}, a
+	 * shallow copy of this operation whose {@link #path} is the given path;
+	 * the copy shares all other fields with this operation, which {@link
+	 * #apply(JsonNode)} must therefore only read. Operations may override this
+	 * method to use the path directly.</p>
+	 *
+	 * @param path the path to apply the operation at
+	 * @param node the value to patch
+	 * @return the patched value
+	 * @throws JsonPatchException operation failed to apply to this value
+	 */
+	protected JsonNode apply(final JsonPointer path, final JsonNode node)
+		throws JsonPatchException
+	{
+		if (path.equals(this.path))
+			return apply(node);
+
+		final JsonPatchOperation copy;
+		try {
+			copy = (JsonPatchOperation) clone();
+		} catch (CloneNotSupportedException e) {
+			throw new IllegalStateException(e);
+		}
+		copy.path = path;
+		return copy.apply(node);
+	}
+
+	/**
+	 * Compile this operation for repeated application
+	 *
+	 * <p>The result must give the same results as {@link
+	 * #applyInPlace(JsonNode, NodeMutator)}. The default implementation simply
+	 * delegates to it; operations override this method to parse their
+	 * arguments once and for all.</p>
+	 *
+	 * @return the compiled operation
+	 * @see CompiledJsonPatch
+	 */
+	CompiledOperation compile()
+	{
+		final JsonPatchOperation self = this;
+		return new CompiledOperation()
+		{
+			@Override
+			JsonNode apply(final JsonNode node, final NodeMutator mutator)
+				throws JsonPatchException
+			{
+				return self.applyInPlace(node, mutator);
+			}
+		};
+	}
+
 	public String getOp() {
 		return op;
 	}
@@ -120,6 +225,15 @@ public abstract class JsonPatchOperation
 		return value_locator;
 	}
 
+	/*
+	 * Used by Jackson: a null locator is the same as no locator, which is also
+	 * what JsonPatchOperationReader reads
+	 */
+	@JsonProperty(JsonDiffConstants.VALUE_LOCATOR)
+	private void setValue_locator(final JsonNode value_locator) {
+		this.value_locator = value_locator == null || value_locator.isNull() ? null : value_locator;
+	}
+
 	@Override
 	public abstract String toString();
 }
@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+
+package com.github.fge.jsonpatch;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+import com.github.fge.jackson.jsonpointer.JsonPointerException;
+import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+
+import java.io.IOException;
+
+/**
+ * Reader of JSON Patch operations, one at a time, from a token stream
+ *
+ * <p>Members of an operation are read in a single pass, in whatever order they
+ * appear: pointers are built from their string value, and values are read
+ * into a tree which becomes the value of the operation as is, without being
+ * copied. Unknown members are skipped, and if a member appears more than once,
+ * the last one wins; this is what binding a patch with Jackson does.</p>
+ *
+ * <p>Instances are not thread safe.</p>
+ *
+ * @see JsonPatch#fromParser(JsonParser)
+ */
+final class JsonPatchOperationReader
+{
+    private static final MessageBundle BUNDLE
+        = MessageBundles.getBundle(JsonPatchMessages.class);
+
+    private static final ObjectReader READER = JacksonUtils.getReader();
+
+    private final JsonParser parser;
+
+    /**
+     * Constructor
+     *
+     * @param parser the parser, either positioned on the start of the patch
+     * array or just before it
+     * @throws IOException read error, or the input is not an array
+     */
+    JsonPatchOperationReader(final JsonParser parser)
+        throws IOException
+    {
+        this.parser = parser;
+        final JsonToken token = parser.getCurrentToken() == null
+            ? parser.nextToken() : parser.getCurrentToken();
+        if (token != JsonToken.START_ARRAY)
+            throw error(BUNDLE.getMessage("jsonPatch.notAnArray"));
+    }
+
+    /**
+     * Read the next operation
+     *
+     * <p>When there are no more operations, the parser is left on the end of
+     * the patch array.</p>
+     *
+     * @return the operation, or null if there are no more operations
+     * @throws IOException read error, or the input is not a valid operation
+     */
+    JsonPatchOperation next()
+        throws IOException
+    {
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.END_ARRAY)
+            return null;
+        if (token != JsonToken.START_OBJECT)
+            throw error(BUNDLE.getMessage("jsonPatch.notAnOperation"));
+
+        String op = null;
+        JsonPointer path = null;
+        JsonPointer from = null;
+        JsonNode value = null;
+        JsonNode valueLocator = null;
+        String name;
+
+        while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+            name = parser.getCurrentName();
+            parser.nextToken();
+            if ("op".equals(name))
+                op = readString(name);
+            else if ("path".equals(name))
+                path = readPointer(name);
+            else if ("from".equals(name))
+                from = readPointer(name);
+            else if ("value".equals(name))
+                value = READER.readTree(parser);
+            else if (JsonDiffConstants.VALUE_LOCATOR.equals(name))
+                valueLocator = readLocator();
+            else
+                parser.skipChildren();
+        }
+        if (token != JsonToken.END_OBJECT)
+            throw error(BUNDLE.getMessage("jsonPatch.deserFailed"));
+
+        final JsonPatchOperation ret = build(op, path, from, value);
+        ret.value_locator = valueLocator;
+        return ret;
+    }
+
+    private JsonPatchOperation build(final String op, final JsonPointer path,
+        final JsonPointer from, final JsonNode value)
+        throws JsonMappingException
+    {
+        if (op == null)
+            throw missing("op");
+        if (path == null)
+            throw missing("path");
+
+        if ("add".equals(op))
+            return new AddOperation(path, required(value), false);
+        if ("copy".equals(op))
+            return new CopyOperation(required(from, "from"), path);
+        if ("move".equals(op))
+            return new MoveOperation(required(from, "from"), path);
+        if ("remove".equals(op))
+            return new RemoveOperation(path);
+        if ("replace".equals(op))
+            return new ReplaceOperation(path, required(value), false);
+        if ("test".equals(op))
+            return new TestOperation(path, required(value), false);
+
+        throw error(BUNDLE.printf("jsonPatch.unknownOperation", op));
+    }
+
+    private String readString(final String name)
+        throws IOException
+    {
+        if (parser.getCurrentToken() != JsonToken.VALUE_STRING)
+            throw error(BUNDLE.printf("jsonPatch.notAString", name));
+        return parser.getText();
+    }
+
+    /*
+     * A null locator is the same as no locator, as when binding
+     */
+    private JsonNode readLocator()
+        throws IOException
+    {
+        if (parser.getCurrentToken() == JsonToken.VALUE_NULL)
+            return null;
+        return READER.readTree(parser);
+    }
+
+    private JsonPointer readPointer(final String name)
+        throws IOException
+    {
+        try {
+            return new JsonPointer(readString(name));
+        } catch (JsonPointerException e) {
+            throw new JsonMappingException(e.getMessage(),
+                parser.getCurrentLocation(), e);
+        }
+    }
+
+    private JsonNode required(final JsonNode value)
+        throws JsonMappingException
+    {
+        if (value == null)
+            throw missing("value");
+        return value;
+    }
+
+    private JsonPointer required(final JsonPointer pointer, final String name)
+        throws JsonMappingException
+    {
+        if (pointer == null)
+            throw missing(name);
+        return pointer;
+    }
+
+    private JsonMappingException missing(final String name)
+    {
+        return error(BUNDLE.printf("jsonPatch.missingMember", name));
+    }
+
+    private JsonMappingException error(final String message)
+    {
+        return new JsonMappingException(message, parser.getCurrentLocation());
+    }
+}
@@ -0,0 +1,630 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+
+package com.github.fge.jsonpatch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+import com.github.fge.jackson.jsonpointer.TokenResolver;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A {@link NodeMutator} caching the resolutions needed by {@code
+ * value_locator} operations
+ *
+ * <p>An operation with a {@code value_locator} designates the element of an
+ * array whose members have the values given by the locator. Resolving it
+ * means resolving the pointer to the array, then finding the element. Both are
+ * cached here, for the duration of one patch application:</p>
+ *
+ * <ul>
+ *     <li>pointers are resolved once, and their resolution is kept until a
+ *     container they were resolved through is modified;</li>
+ *     <li>the first time an array is looked up with a given set of member
+ *     names, all its elements are indexed by the values of these members;
+ *     later lookups against the same array with the same member names are
+ *     hash lookups.</li>
+ * </ul>
+ *
+ * <p>Since all mutations of the document go through this class, indices are
+ * maintained as the document changes. Each element is given a slot when it
+ * enters the index, and the index maps member values to slots; removing an
+ * element, appending one or replacing one only updates that element's slot.
+ * The current position of a slot is the number of live slots before it, which
+ * is kept in a Fenwick tree, so that removals shift the positions of all later
+ * elements in logarithmic time. Only insertions in the middle of an array, and
+ * modifications of a container value of an indexed member, make the index of
+ * the array be rebuilt.</p>
+ *
+ * <p>Operation streams can be arbitrarily long, so what is cached is bounded
+ * by the size of the document rather than by the number of operations:</p>
+ *
+ * <ul>
+ *     <li>pointer resolutions are forgotten every {@link #MAX_RESOLUTIONS}
+ *     resolutions, and indices when there are {@link #MAX_INDICES} of them;
+ *     they are rebuilt on demand;</li>
+ *     <li>an index whose slots are mostly dead, as happens when elements are
+ *     appended to an array while others are removed from its front, is
+ *     dropped, and rebuilt on demand with one slot per element;</li>
+ *     <li>entries left behind by dropped indices are purged once they
+ *     outnumber the live ones.</li>
+ * </ul>
+ *
+ * <p>Hits, misses and evictions are counted in a {@link LocatorStatistics}.
+ * One instance is created per patch application; it is not thread safe.</p>
+ */
+final class LocatorCache
+    extends NodeMutator
+{
+    @VisibleForTesting
+    static final int MAX_RESOLUTIONS = 1024;
+    @VisibleForTesting
+    static final int MAX_INDICES = 256;
+
+    private static final int MIN_PURGE = 1024;
+
+    private final LocatorStatistics statistics;
+
+    /*
+     * The document pointer resolutions are valid for
+     */
+    private JsonNode root;
+
+    /*
+     * Pointer resolutions, possibly null, and pointers by container they were
+     * resolved through
+     */
+    private final Map<JsonPointer, JsonNode> resolved = Maps.newHashMap();
+    private final Map<JsonNode, Set<JsonPointer>> resolvedThrough
+        = new IdentityHashMap<JsonNode, Set<JsonPointer>>();
+    private int resolutions = 0;
+
+    /*
+     * Indices by array, the index owning each indexed element, and the index
+     * depending on each container value of an indexed member
+     */
+    private final Map<ArrayNode, ArrayIndex> indices
+        = new IdentityHashMap<ArrayNode, ArrayIndex>();
+    private final Map<JsonNode, ArrayIndex> owners
+        = new IdentityHashMap<JsonNode, ArrayIndex>();
+    private final Map<JsonNode, ArrayIndex> dependents
+        = new IdentityHashMap<JsonNode, ArrayIndex>();
+
+    /*
+     * Size of owners and dependents at which entries of dropped indices are
+     * purged
+     */
+    private int purgeAt = MIN_PURGE;
+
+    LocatorCache()
+    {
+        this(new LocatorStatistics());
+    }
+
+    LocatorCache(final LocatorStatistics statistics)
+    {
+        this.statistics = statistics;
+    }
+
+    /**
+     * Resolve a pointer against a document
+     *
+     * @param pointer the pointer
+     * @param node the document
+     * @return the designated value, or null if there is none
+     * @see JsonPointer#get(JsonNode)
+     */
+    JsonNode get(final JsonPointer pointer, final JsonNode node)
+    {
+        if (node != root) {
+            resolved.clear();
+            resolvedThrough.clear();
+            resolutions = 0;
+            root = node;
+        }
+
+        final JsonNode known = resolved.get(pointer);
+        if (known != null || resolved.containsKey(pointer)) {
+            statistics.pointerHit();
+            return known;
+        }
+        statistics.pointerMiss();
+
+        /*
+         * Pointers whose resolution was forgotten are left in the sets of the
+         * containers they were resolved through, so what is bounded is the
+         * number of resolutions since the last clear
+         */
+        if (resolutions++ == MAX_RESOLUTIONS) {
+            statistics.eviction();
+            resolved.clear();
+            resolvedThrough.clear();
+            resolutions = 1;
+        }
+
+        JsonNode ret = node;
+        Set<JsonPointer> pointers;
+
+        for (final TokenResolver<JsonNode> resolver: pointer) {
+            if (ret == null)
+                break;
+            if (ret.isContainerNode()) {
+                pointers = resolvedThrough.get(ret);
+                if (pointers == null) {
+                    pointers = Sets.newHashSet();
+                    resolvedThrough.put(ret, pointers);
+                }
+                pointers.add(pointer);
+            }
+            ret = resolver.get(ret);
+        }
+
+        resolved.put(pointer, ret);
+        return ret;
+    }
+
+    /**
+     * Find the first element of an array matching a locator
+     *
+     * <p>An element matches if, for every member of the locator, it has a
+     * member with the same name and an equal value.</p>
+     *
+     * @param array the array
+     * @param locator the locator, an object
+     * @return the index of the element, or -1 if no element matches
+     */
+    int indexOf(final ArrayNode array, final JsonNode locator)
+    {
+        final List<String> names = Lists.newArrayList(locator.fieldNames());
+        final List<JsonNode> values = memberValues(locator, names);
+
+        ArrayIndex index = indices.get(array);
+        if (index == null) {
+            trim();
+            index = new ArrayIndex(array);
+            indices.put(array, index);
+        }
+
+        ArrayIndex.MemberIndex memberIndex = index.byNames.get(names);
+        if (memberIndex == null) {
+            statistics.locatorMiss();
+            memberIndex = index.addMemberIndex(names);
+        } else
+            statistics.locatorHit();
+
+        final List<Integer> slots = memberIndex.slots.get(values);
+        return slots == null ? -1 : index.position(slots.get(0));
+    }
+
+    /**
+     * Number of entries currently cached
+     *
+     * <p>This counts pointer resolutions, containers they were resolved
+     * through, indexed arrays, index slots and elements and member values
+     * known to indices.</p>
+     *
+     * @return the number of entries
+     */
+    @VisibleForTesting
+    int size()
+    {
+        int ret = resolved.size() + resolvedThrough.size() + indices.size()
+            + owners.size() + dependents.size();
+        for (final ArrayIndex index: indices.values())
+            ret += index.slotCount;
+        return ret;
+    }
+
+    @Override
+    void put(final ObjectNode object, final String name, final JsonNode value)
+    {
+        super.put(object, name, value);
+        memberModified(object, name);
+    }
+
+    @Override
+    void remove(final ObjectNode object, final String name)
+    {
+        super.remove(object, name);
+        memberModified(object, name);
+    }
+
+    @Override
+    void add(final ArrayNode array, final JsonNode value)
+    {
+        super.add(array, value);
+        final ArrayIndex index = arrayModified(array);
+        if (index != null)
+            index.append(value);
+    }
+
+    @Override
+    void insert(final ArrayNode array, final int index, final JsonNode value)
+    {
+        final boolean append = index >= array.size();
+        super.insert(array, index, value);
+        final ArrayIndex arrayIndex = arrayModified(array);
+        if (arrayIndex == null)
+            return;
+        if (append)
+            arrayIndex.append(value);
+        else
+            drop(arrayIndex);
+    }
+
+    @Override
+    void set(final ArrayNode array, final int index, final JsonNode value)
+    {
+        final JsonNode old = array.get(index);
+        super.set(array, index, value);
+        final ArrayIndex arrayIndex = arrayModified(array);
+        if (arrayIndex != null)
+            arrayIndex.replace(index, old, value);
+    }
+
+    @Override
+    void remove(final ArrayNode array, final int index)
+    {
+        final JsonNode old = array.get(index);
+        super.remove(array, index);
+        if (old == null)
+            return;
+        final ArrayIndex arrayIndex = arrayModified(array);
+        if (arrayIndex != null)
+            arrayIndex.remove(index, old);
+    }
+
+    private void memberModified(final ObjectNode object, final String name)
+    {
+        containerModified(object);
+        final ArrayIndex index = owners.get(object);
+        if (index != null && isLive(index))
+            index.memberModified(object, name);
+    }
+
+    /*
+     * Return the index of the array, if any and still valid
+     */
+    private ArrayIndex arrayModified(final ArrayNode array)
+    {
+        containerModified(array);
+        return indices.get(array);
+    }
+
+    private void containerModified(final JsonNode container)
+    {
+        final Set<JsonPointer> pointers = resolvedThrough.remove(container);
+        if (pointers != null)
+            for (final JsonPointer pointer: pointers)
+                resolved.remove(pointer);
+
+        final ArrayIndex index = dependents.get(container);
+        if (index != null)
+            drop(index);
+    }
+
+    private void drop(final ArrayIndex index)
+    {
+        if (!isLive(index))
+            return;
+        indices.remove(index.array);
+        for (final JsonNode element: index.slotOf.keySet())
+            if (owners.get(element) == index)
+                owners.remove(element);
+    }
+
+    private boolean isLive(final ArrayIndex index)
+    {
+        return indices.get(index.array) == index;
+    }
+
+    /*
+     * Called before a new index is built: forget all indices if there are too
+     * many, otherwise purge entries of dropped indices if they may outnumber
+     * the live ones; these are dependencies, and owners of elements which
+     * entered a dropped index
+     */
+    private void trim()
+    {
+        if (indices.size() >= MAX_INDICES) {
+            statistics.eviction();
+            indices.clear();
+            owners.clear();
+            dependents.clear();
+            purgeAt = MIN_PURGE;
+            return;
+        }
+
+        if (owners.size() + dependents.size() < purgeAt)
+            return;
+        purge(owners);
+        purge(dependents);
+        purgeAt = Math.max(MIN_PURGE, 2 * (owners.size() + dependents.size()));
+    }
+
+    private void purge(final Map<JsonNode, ArrayIndex> map)
+    {
+        final Iterator<ArrayIndex> iterator = map.values().iterator();
+        while (iterator.hasNext())
+            if (!isLive(iterator.next()))
+                iterator.remove();
+    }
+
+    /*
+     * Values of the given members of an object, or null if one is missing
+     */
+    private static List<JsonNode> memberValues(final JsonNode object,
+        final List<String> names)
+    {
+        final List<JsonNode> ret = Lists.newArrayListWithCapacity(names.size());
+        JsonNode value;
+        for (final String name: names) {
+            value = object.get(name);
+            if (value == null)
+                return null;
+            ret.add(value);
+        }
+        return ret;
+    }
+
+    private final class ArrayIndex
+    {
+        private final ArrayNode array;
+        private final Map<List<String>, MemberIndex> byNames
+            = Maps.newHashMap();
+
+        /*
+         * Slots of object elements (value nodes may be shared, and are never
+         * modified), and live slots, also as a Fenwick tree (1-based) of
+         * counts
+         */
+        private final Map<JsonNode, Integer> slotOf
+            = new IdentityHashMap<JsonNode, Integer>();
+        private final BitSet live = new BitSet();
+        private int slotCount;
+        private int[] tree;
+
+        private ArrayIndex(final ArrayNode array)
+        {
+            this.array = array;
+            slotCount = array.size();
+            live.set(0, slotCount);
+            buildTree(Math.max(16, 2 * slotCount));
+            for (int slot = 0; slot < slotCount; slot++)
+                own(array.get(slot), slot);
+        }
+
+        private MemberIndex addMemberIndex(final List<String> names)
+        {
+            final MemberIndex ret = new MemberIndex(names);
+            byNames.put(names, ret);
+            int index = 0;
+            for (int slot = live.nextSetBit(0); slot >= 0;
+                slot = live.nextSetBit(slot + 1))
+                ret.assign(slot, array.get(index++));
+            return ret;
+        }
+
+        private void append(final JsonNode element)
+        {
+            /*
+             * The array already holds the element; if less than half of the
+             * slots are live, rebuild rather than grow
+             */
+            if (slotCount >= 2 * array.size() + 16) {
+                drop(this);
+                return;
+            }
+            final int slot = slotCount++;
+            if (slotCount > tree.length - 1)
+                buildTree(2 * slotCount);
+            live.set(slot);
+            increment(slot, 1);
+            enter(element, slot);
+        }
+
+        private void remove(final int index, final JsonNode element)
+        {
+            final int slot = slotAt(index);
+            live.clear(slot);
+            increment(slot, -1);
+            leave(element, slot);
+        }
+
+        private void replace(final int index, final JsonNode old,
+            final JsonNode element)
+        {
+            final int slot = slotAt(index);
+            leave(old, slot);
+            enter(element, slot);
+        }
+
+        private void memberModified(final ObjectNode element,
+            final String name)
+        {
+            final Integer slot = slotOf.get(element);
+            if (slot == null)
+                return;
+            for (final MemberIndex memberIndex: byNames.values())
+                if (memberIndex.names.contains(name)) {
+                    memberIndex.unassign(slot);
+                    memberIndex.assign(slot, element);
+                }
+        }
+
+        private void enter(final JsonNode element, final int slot)
+        {
+            own(element, slot);
+            for (final MemberIndex memberIndex: byNames.values())
+                memberIndex.assign(slot, element);
+        }
+
+        private void leave(final JsonNode element, final int slot)
+        {
+            if (element.isObject()) {
+                slotOf.remove(element);
+                if (owners.get(element) == this)
+                    owners.remove(element);
+            }
+            for (final MemberIndex memberIndex: byNames.values())
+                memberIndex.unassign(slot);
+        }
+
+        private void own(final JsonNode element, final int slot)
+        {
+            if (!element.isObject())
+                return;
+            slotOf.put(element, slot);
+            owners.put(element, this);
+        }
+
+        /*
+         * Current position of a live slot: the number of live slots before it
+         */
+        private int position(final int slot)
+        {
+            int ret = 0;
+            for (int i = slot; i > 0; i -= i & -i)
+                ret += tree[i];
+            return ret;
+        }
+
+        /*
+         * Live slot at a given position
+         */
+        private int slotAt(final int index)
+        {
+            int slot = 0;
+            int remaining = index + 1;
+            for (int step = Integer.highestOneBit(tree.length - 1); step > 0;
+                step >>= 1) {
+                final int next = slot + step;
+                if (next < tree.length && tree[next] < remaining) {
+                    slot = next;
+                    remaining -= tree[next];
+                }
+            }
+            return slot;
+        }
+
+        private void increment(final int slot, final int delta)
+        {
+            for (int i = slot + 1; i < tree.length; i += i & -i)
+                tree[i] += delta;
+        }
+
+        private void buildTree(final int capacity)
+        {
+            tree = new int[capacity + 1];
+            int parent;
+            for (int i = 1; i <= capacity; i++) {
+                if (live.get(i - 1))
+                    tree[i]++;
+                parent = i + (i & -i);
+                if (parent <= capacity)
+                    tree[parent] += tree[i];
+            }
+        }
+
+        private final class MemberIndex
+        {
+            private final List<String> names;
+
+            /*
+             * Live slots by member values, in ascending order, and member
+             * values by slot
+             */
+            private final Map<List<JsonNode>, List<Integer>> slots
+                = Maps.newHashMap();
+            private final Map<Integer, List<JsonNode>> values
+                = Maps.newHashMap();
+
+            private MemberIndex(final List<String> names)
+            {
+                this.names = names;
+            }
+
+            private void assign(final int slot, final JsonNode element)
+            {
+                final List<JsonNode> key = memberValues(element, names);
+                if (key == null)
+                    return;
+                values.put(slot, key);
+                for (final JsonNode value: key)
+                    depend(value);
+
+                List<Integer> list = slots.get(key);
+                if (list == null) {
+                    list = Lists.newArrayListWithCapacity(1);
+                    slots.put(key, list);
+                }
+                final int insertion = Collections.binarySearch(list, slot);
+                list.add(-insertion - 1, slot);
+            }
+
+            private void unassign(final int slot)
+            {
+                final List<JsonNode> key = values.remove(slot);
+                if (key == null)
+                    return;
+                final List<Integer> list = slots.get(key);
+                list.remove(Integer.valueOf(slot));
+                if (list.isEmpty())
+                    slots.remove(key);
+                /*
+                 * Container values may be shared, so this index cannot stop
+                 * depending on them; rather than letting dependencies
+                 * accumulate, drop it
+                 */
+                for (final JsonNode value: key)
+                    if (value.isContainerNode()) {
+                        drop(ArrayIndex.this);
+                        return;
+                    }
+            }
+
+            /*
+             * Member values are hashed: if a container value is modified, its
+             * hash changes, and the whole index must be rebuilt
+             */
+            private void depend(final JsonNode value)
+            {
+                if (!value.isContainerNode())
+                    return;
+                dependents.put(value, ArrayIndex.this);
+                for (final JsonNode child: value)
+                    depend(child);
+            }
+        }
+    }
+}
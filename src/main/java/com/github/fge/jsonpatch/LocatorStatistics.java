@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Counters of the {@code value_locator} cache, for tuning
+ *
+ * <p>Pass an instance to {@link JsonPatch#apply(JsonNode, boolean,
+ * LocatorStatistics)} or to one of the {@code applyStream()} methods taking
+ * one; it is updated as operations are applied. Counts add up if the same
+ * instance is passed to several calls.</p>
+ *
+ * <ul>
+ *     <li>pointer hits and misses count lookups of the pointers to the arrays
+ *     operations with a locator apply to, depending on whether the lookup was
+ *     answered from the cache;</li>
+ *     <li>locator hits and misses count lookups of elements by locator,
+ *     depending on whether the array was already indexed by the members of
+ *     the locator;</li>
+ *     <li>evictions count the number of times cached data was forgotten to
+ *     keep the cache within its bounds; a high count relative to misses means
+ *     the cache is too small for the patch.</li>
+ * </ul>
+ *
+ * <p>Instances are not thread safe.</p>
+ */
+public final class LocatorStatistics
+{
+    private long pointerHits = 0L;
+    private long pointerMisses = 0L;
+    private long locatorHits = 0L;
+    private long locatorMisses = 0L;
+    private long evictions = 0L;
+
+    public long getPointerHits()
+    {
+        return pointerHits;
+    }
+
+    public long getPointerMisses()
+    {
+        return pointerMisses;
+    }
+
+    public long getLocatorHits()
+    {
+        return locatorHits;
+    }
+
+    public long getLocatorMisses()
+    {
+        return locatorMisses;
+    }
+
+    public long getEvictions()
+    {
+        return evictions;
+    }
+
+    void pointerHit()
+    {
+        pointerHits++;
+    }
+
+    void pointerMiss()
+    {
+        pointerMisses++;
+    }
+
+    void locatorHit()
+    {
+        locatorHits++;
+    }
+
+    void locatorMiss()
+    {
+        locatorMisses++;
+    }
+
+    void eviction()
+    {
+        evictions++;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "pointers: " + pointerHits + " hits / " + pointerMisses
+            + " misses; locators: " + locatorHits + " hits / " + locatorMisses
+            + " misses; " + evictions + " evictions";
+    }
+}
@@ -75,15 +75,50 @@ public final class MoveOperation
     @Override
     public JsonNode apply(final JsonNode node)
         throws JsonPatchException
+    {
+        return applyInPlace(node.deepCopy(), new NodeMutator());
+    }
+
+    @Override
+    JsonNode applyInPlace(final JsonPointer path, final JsonNode node,
+        final NodeMutator mutator)
+        throws JsonPatchException
     {
         if (from.equals(path))
-            return node.deepCopy();
+            return node;
         final JsonNode movedNode = from.path(node);
         if (movedNode.isMissingNode())
             throw new JsonPatchException(BUNDLE.getMessage(
                 "jsonPatch.noSuchPath"));
-        final JsonPatchOperation remove = new RemoveOperation(from);
-        final JsonPatchOperation add = new AddOperation(path, movedNode);
-        return add.apply(remove.apply(node));
+        /*
+         * The moved node is detached from its parent before being added, so it
+         * can be reattached as is
+         */
+        final JsonNode ret = RemoveOperation.removeValue(from, node, mutator);
+        return AddOperation.addValue(path, movedNode, ret, mutator);
+    }
+
+    @Override
+    CompiledOperation compile()
+    {
+        if (from.equals(path))
+            return super.compile();
+        final ParsedPointer fromPointer = new ParsedPointer(from);
+        final ParsedPointer pointer = new ParsedPointer(path);
+        return new CompiledOperation()
+        {
+            @Override
+            JsonNode apply(final JsonNode node, final NodeMutator mutator)
+                throws JsonPatchException
+            {
+                final JsonNode movedNode = fromPointer.get(node);
+                if (movedNode == null)
+                    throw new JsonPatchException(BUNDLE.getMessage(
+                        "jsonPatch.noSuchPath"));
+                final JsonNode ret = RemoveOperation.removeValue(fromPointer,
+                    node, mutator);
+                return AddOperation.addValue(pointer, movedNode, ret, mutator);
+            }
+        };
     }
 }
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Primitive mutations used by operations applied in place
+ *
+ * <p>Operations applied through {@link
+ * JsonPatchOperation#applyInPlace(JsonNode, NodeMutator)} never modify a
+ * container directly; they go through an instance of this class instead. This
+ * gives a single place where every structural change to the patched document
+ * is performed.</p>
+ *
+ * <p>It is also what allows {@link #contains(ArrayNode, JsonNode)} to keep
+ * membership indices of arrays up to date; see {@link ArrayMembership}.
+ * Subclasses overriding mutations must therefore call the overridden
+ * method.</p>
+ *
+ * <p>One instance is created per patch application; it is not thread safe.</p>
+ */
+class NodeMutator
+{
+    /*
+     * Created on the first membership check
+     */
+    private ArrayMembership membership;
+
+    /**
+     * Tell whether an array has an element equal to a value
+     *
+     * @param array the array
+     * @param value the value
+     * @return true if an element is equal to the value
+     */
+    boolean contains(final ArrayNode array, final JsonNode value)
+    {
+        if (membership == null)
+            membership = new ArrayMembership();
+        return membership.contains(array, value);
+    }
+
+    /**
+     * Set the value of a member of an object, replacing any previous value
+     *
+     * @param object the object
+     * @param name the member name
+     * @param value the new value
+     */
+    void put(final ObjectNode object, final String name, final JsonNode value)
+    {
+        object.put(name, value);
+        if (membership != null)
+            membership.modified(object);
+    }
+
+    /**
+     * Remove a member of an object
+     *
+     * @param object the object
+     * @param name the member name
+     */
+    void remove(final ObjectNode object, final String name)
+    {
+        object.remove(name);
+        if (membership != null)
+            membership.modified(object);
+    }
+
+    /**
+     * Append a value at the end of an array
+     *
+     * @param array the array
+     * @param value the value to append
+     */
+    void add(final ArrayNode array, final JsonNode value)
+    {
+        array.add(value);
+        if (membership != null)
+            membership.added(array, value);
+    }
+
+    /**
+     * Insert a value in an array, shifting elements at and after the index
+     *
+     * @param array the array
+     * @param index the index
+     * @param value the value to insert
+     */
+    void insert(final ArrayNode array, final int index, final JsonNode value)
+    {
+        array.insert(index, value);
+        if (membership != null)
+            membership.added(array, value);
+    }
+
+    /**
+     * Replace the element at a given index of an array
+     *
+     * @param array the array
+     * @param index the index
+     * @param value the replacement value
+     */
+    void set(final ArrayNode array, final int index, final JsonNode value)
+    {
+        final JsonNode old = array.set(index, value);
+        if (membership != null) {
+            membership.removed(array, old);
+            membership.added(array, value);
+        }
+    }
+
+    /**
+     * Remove the element at a given index of an array
+     *
+     * @param array the array
+     * @param index the index
+     */
+    void remove(final ArrayNode array, final int index)
+    {
+        final JsonNode old = array.remove(index);
+        if (membership != null && old != null)
+            membership.removed(array, old);
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+
+package com.github.fge.jsonpatch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+import com.github.fge.jackson.jsonpointer.TokenResolver;
+
+/**
+ * A JSON Pointer whose reference tokens are parsed once and for all
+ *
+ * <p>{@link JsonPointer} resolves each token anew every time it is applied to
+ * a value, which involves parsing array indices again. This class keeps the
+ * raw tokens and the array index each of them stands for, so that resolving it
+ * is a simple walk down the tree which allocates nothing.</p>
+ *
+ * <p>Resolution obeys the same rules as {@link JsonPointer#get(JsonNode)}.
+ * Instances are immutable.</p>
+ *
+ * @see CompiledJsonPatch
+ */
+final class ParsedPointer
+{
+    /*
+     * Array index of a token which cannot designate an array element
+     */
+    static final int NOT_AN_INDEX = -1;
+
+    private final JsonPointer pointer;
+    private final String[] tokens;
+    private final int[] indices;
+
+    /*
+     * Where to add a value if the parent is an array; see
+     * AddOperation.arrayAddIndex()
+     */
+    private final int addIndex;
+
+    ParsedPointer(final JsonPointer pointer)
+    {
+        this.pointer = pointer;
+
+        int size = 0;
+        for (final TokenResolver<JsonNode> ignored: pointer)
+            size++;
+
+        tokens = new String[size];
+        indices = new int[size];
+
+        int i = 0;
+        for (final TokenResolver<JsonNode> resolver: pointer) {
+            tokens[i] = resolver.getToken().getRaw();
+            indices[i] = arrayIndexFor(tokens[i]);
+            i++;
+        }
+
+        addIndex = size == 0 ? NOT_AN_INDEX
+            : AddOperation.arrayAddIndex(tokens[size - 1]);
+    }
+
+    JsonPointer getPointer()
+    {
+        return pointer;
+    }
+
+    boolean isEmpty()
+    {
+        return tokens.length == 0;
+    }
+
+    /**
+     * Return the raw last reference token
+     *
+     * @return the token; must not be called on an empty pointer
+     */
+    String lastToken()
+    {
+        return tokens[tokens.length - 1];
+    }
+
+    /**
+     * Return the array index designated by the last reference token
+     *
+     * @return the index, or {@link #NOT_AN_INDEX}
+     */
+    int lastIndex()
+    {
+        return indices[indices.length - 1];
+    }
+
+    /**
+     * Return the index at which {@code add} inserts into an array parent
+     *
+     * @return see {@link AddOperation#arrayAddIndex(String)}
+     */
+    int addIndex()
+    {
+        return addIndex;
+    }
+
+    /**
+     * Resolve this pointer against a value
+     *
+     * <p>The document itself is missing once its root has been removed.</p>
+     *
+     * @param node the value
+     * @return the designated value, or null if there is none
+     */
+    JsonNode get(final JsonNode node)
+    {
+        final JsonNode ret = resolve(node, tokens.length);
+        return ret == null || ret.isMissingNode() ? null : ret;
+    }
+
+    /**
+     * Resolve the parent of this pointer against a value
+     *
+     * @param node the value
+     * @return the designated value, or null if there is none
+     */
+    JsonNode parent(final JsonNode node)
+    {
+        return resolve(node, tokens.length - 1);
+    }
+
+    /**
+     * Resolve the last reference token against the value designated by the
+     * parent of this pointer
+     *
+     * @param parent the parent value, possibly null
+     * @return the designated value, or null if there is none
+     */
+    JsonNode child(final JsonNode parent)
+    {
+        return step(parent, tokens.length - 1);
+    }
+
+    @Override
+    public String toString()
+    {
+        return pointer.toString();
+    }
+
+    private JsonNode resolve(final JsonNode node, final int count)
+    {
+        JsonNode ret = node;
+        for (int i = 0; i < count && ret != null; i++)
+            ret = step(ret, i);
+        return ret;
+    }
+
+    private JsonNode step(final JsonNode node, final int i)
+    {
+        if (node == null || !node.isContainerNode())
+            return null;
+        return node.isObject() ? node.get(tokens[i]) : node.get(indices[i]);
+    }
+
+    /*
+     * Same as what JsonNodeResolver does: no leading zeroes, no empty token
+     */
+    private static int arrayIndexFor(final String raw)
+    {
+        if (raw.isEmpty())
+            return NOT_AN_INDEX;
+        if (raw.charAt(0) == '0')
+            return raw.length() == 1 ? 0 : NOT_AN_INDEX;
+        try {
+            return Integer.parseInt(raw);
+        } catch (NumberFormatException ignored) {
+            return NOT_AN_INDEX;
+        }
+    }
+}
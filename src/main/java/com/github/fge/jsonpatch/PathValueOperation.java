@@ -47,9 +47,26 @@ public abstract class PathValueOperation
      */
     protected PathValueOperation(final String op, final JsonPointer path,
         final JsonNode value)
+    {
+        this(op, path, value, true);
+    }
+
+    /**
+     * Package-private constructor
+     *
+     * <p>If the value is not copied, it must not be referenced by anything
+     * else; this is the case of values read along with the operation.</p>
+     *
+     * @param op operation name
+     * @param path affected path
+     * @param value JSON value
+     * @param copy whether to copy the value
+     */
+    PathValueOperation(final String op, final JsonPointer path,
+        final JsonNode value, final boolean copy)
     {
         super(op, path);
-        this.value = value.deepCopy();
+        this.value = copy ? value.deepCopy() : value;
     }
 
     public void serialize(final JsonGenerator jgen,
@@ -58,14 +58,87 @@ public final class RemoveOperation
         if (path.path(node).isMissingNode())
             throw new JsonPatchException(BUNDLE.getMessage(
                 "jsonPatch.noSuchPath"));
-        final JsonNode ret = node.deepCopy();
-        final JsonNode parentNode = path.parent().get(ret);
+        return removeValue(path, node.deepCopy(), new NodeMutator());
+    }
+
+    @Override
+    JsonNode applyInPlace(final JsonPointer path, final JsonNode node,
+        final NodeMutator mutator)
+        throws JsonPatchException
+    {
+        return removeValue(path, node, mutator);
+    }
+
+    /**
+     * Remove the value at a given path of a JSON value, modifying it in place
+     *
+     * <p>This is also used by {@code move}.</p>
+     *
+     * @param path the path of the value to remove
+     * @param node the value to patch
+     * @param mutator the mutator to perform changes with
+     * @return the patched value
+     * @throws JsonPatchException no value exists at this path
+     */
+    static JsonNode removeValue(final JsonPointer path, final JsonNode node,
+        final NodeMutator mutator)
+        throws JsonPatchException
+    {
+        if (path.isEmpty())
+            return MissingNode.getInstance();
+        if (path.path(node).isMissingNode())
+            throw new JsonPatchException(BUNDLE.getMessage(
+                "jsonPatch.noSuchPath"));
+        final JsonNode parentNode = path.parent().get(node);
         final String raw = Iterables.getLast(path).getToken().getRaw();
         if (parentNode.isObject())
-            ((ObjectNode) parentNode).remove(raw);
+            mutator.remove((ObjectNode) parentNode, raw);
+        else
+            mutator.remove((ArrayNode) parentNode, Integer.parseInt(raw));
+        return node;
+    }
+
+    @Override
+    CompiledOperation compile()
+    {
+        final ParsedPointer pointer = new ParsedPointer(path);
+        return new CompiledOperation()
+        {
+            @Override
+            JsonNode apply(final JsonNode node, final NodeMutator mutator)
+                throws JsonPatchException
+            {
+                return removeValue(pointer, node, mutator);
+            }
+        };
+    }
+
+    /**
+     * Remove the value at a given parsed path of a JSON value, modifying it in
+     * place
+     *
+     * @param path the path of the value to remove
+     * @param node the value to patch
+     * @param mutator the mutator to perform changes with
+     * @return the patched value
+     * @throws JsonPatchException no value exists at this path
+     * @see #removeValue(JsonPointer, JsonNode, NodeMutator)
+     */
+    static JsonNode removeValue(final ParsedPointer path, final JsonNode node,
+        final NodeMutator mutator)
+        throws JsonPatchException
+    {
+        if (path.isEmpty())
+            return MissingNode.getInstance();
+        final JsonNode parentNode = path.parent(node);
+        if (path.child(parentNode) == null)
+            throw new JsonPatchException(BUNDLE.getMessage(
+                "jsonPatch.noSuchPath"));
+        if (parentNode.isObject())
+            mutator.remove((ObjectNode) parentNode, path.lastToken());
         else
-            ((ArrayNode) parentNode).remove(Integer.parseInt(raw));
-        return ret;
+            mutator.remove((ArrayNode) parentNode, path.lastIndex());
+        return node;
     }
 
     public void serialize(final JsonGenerator jgen,
@@ -46,6 +46,12 @@ public final class ReplaceOperation
         super("replace", path, value);
     }
 
+    ReplaceOperation(final JsonPointer path, final JsonNode value,
+        final boolean copy)
+    {
+        super("replace", path, value, copy);
+    }
+
     @Override
     public JsonNode apply(final JsonNode node)
         throws JsonPatchException
@@ -66,16 +72,98 @@ public final class ReplaceOperation
         if (path.path(node).isMissingNode())
             throw new JsonPatchException(BUNDLE.getMessage(
                 "jsonPatch.noSuchPath"));
-        final JsonNode replacement = value.deepCopy();
+        if (path.isEmpty())
+            return value.deepCopy();
+        return replaceValue(path, value.deepCopy(), node.deepCopy(),
+            new NodeMutator());
+    }
+
+    @Override
+    JsonNode applyInPlace(final JsonPointer path, final JsonNode node,
+        final NodeMutator mutator)
+        throws JsonPatchException
+    {
+        if (path.path(node).isMissingNode())
+            throw new JsonPatchException(BUNDLE.getMessage(
+                "jsonPatch.noSuchPath"));
+        return replaceValue(path, value.deepCopy(), node, mutator);
+    }
+
+    /**
+     * Replace the value at a given path of a JSON value, modifying it in place
+     *
+     * <p>The path must exist in the value to patch.</p>
+     *
+     * @param path the path of the value to replace
+     * @param replacement the replacement value
+     * @param node the value to patch
+     * @param mutator the mutator to perform changes with
+     * @return the patched value
+     */
+    static JsonNode replaceValue(final JsonPointer path,
+        final JsonNode replacement, final JsonNode node,
+        final NodeMutator mutator)
+    {
         if (path.isEmpty())
             return replacement;
-        final JsonNode ret = node.deepCopy();
-        final JsonNode parent = path.parent().get(ret);
+        final JsonNode parent = path.parent().get(node);
         final String rawToken = Iterables.getLast(path).getToken().getRaw();
         if (parent.isObject())
-            ((ObjectNode) parent).put(rawToken, replacement);
+            mutator.put((ObjectNode) parent, rawToken, replacement);
+        else
+            mutator.set((ArrayNode) parent, Integer.parseInt(rawToken),
+                replacement);
+        return node;
+    }
+
+    @Override
+    CompiledOperation compile()
+    {
+        final ParsedPointer pointer = new ParsedPointer(path);
+        return new CompiledOperation()
+        {
+            @Override
+            JsonNode apply(final JsonNode node, final NodeMutator mutator)
+                throws JsonPatchException
+            {
+                return replaceValue(pointer, value, node, mutator);
+            }
+        };
+    }
+
+    /**
+     * Replace the value at a given parsed path of a JSON value with a copy of
+     * another value, modifying it in place
+     *
+     * <p>The value is only copied once the path is known to exist.</p>
+     *
+     * @param path the path of the value to replace
+     * @param value the replacement value, which is copied
+     * @param node the value to patch
+     * @param mutator the mutator to perform changes with
+     * @return the patched value
+     * @throws JsonPatchException no value exists at this path
+     */
+    static JsonNode replaceValue(final ParsedPointer path,
+        final JsonNode value, final JsonNode node, final NodeMutator mutator)
+        throws JsonPatchException
+    {
+        if (path.isEmpty()) {
+            if (node.isMissingNode())
+                throw new JsonPatchException(BUNDLE.getMessage(
+                    "jsonPatch.noSuchPath"));
+            return value.deepCopy();
+        }
+        final JsonNode parent = path.parent(node);
+        if (path.child(parent) == null)
+            throw new JsonPatchException(BUNDLE.getMessage(
+                "jsonPatch.noSuchPath"));
+        if (parent.isObject())
+            mutator.put((ObjectNode) parent, path.lastToken(),
+                value.deepCopy());
         else
-            ((ArrayNode) parent).set(Integer.parseInt(rawToken), replacement);
-        return ret;
+            mutator.set((ArrayNode) parent, path.lastIndex(),
+                value.deepCopy());
+        return node;
     }
 }
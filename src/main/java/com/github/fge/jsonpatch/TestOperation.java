@@ -52,9 +52,23 @@ public final class TestOperation
         super("test", path, value);
     }
 
+    TestOperation(final JsonPointer path, final JsonNode value,
+        final boolean copy)
+    {
+        super("test", path, value, copy);
+    }
+
     @Override
     public JsonNode apply(final JsonNode node)
         throws JsonPatchException
+    {
+        return applyInPlace(node, new NodeMutator()).deepCopy();
+    }
+
+    @Override
+    JsonNode applyInPlace(final JsonPointer path, final JsonNode node,
+        final NodeMutator mutator)
+        throws JsonPatchException
     {
         final JsonNode tested = path.path(node);
         if (tested.isMissingNode())
@@ -63,6 +77,28 @@ public final class TestOperation
         if (!EQUIVALENCE.equivalent(tested, value))
             throw new JsonPatchException(BUNDLE.getMessage(
                 "jsonPatch.valueTestFailure"));
-        return node.deepCopy();
+        return node;
+    }
+
+    @Override
+    CompiledOperation compile()
+    {
+        final ParsedPointer pointer = new ParsedPointer(path);
+        return new CompiledOperation()
+        {
+            @Override
+            JsonNode apply(final JsonNode node, final NodeMutator mutator)
+                throws JsonPatchException
+            {
+                final JsonNode tested = pointer.get(node);
+                if (tested == null)
+                    throw new JsonPatchException(BUNDLE.getMessage(
+                        "jsonPatch.noSuchPath"));
+                if (!EQUIVALENCE.equivalent(tested, value))
+                    throw new JsonPatchException(BUNDLE.getMessage(
+                        "jsonPatch.valueTestFailure"));
+                return node;
+            }
+        };
     }
 }
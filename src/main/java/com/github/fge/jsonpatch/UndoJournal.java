@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link NodeMutator} recording the inverse of every mutation it performs
+ *
+ * <p>This is what makes {@link JsonPatch#applyTransactionally(JsonNode)}
+ * atomic: if an operation fails, {@link #rollback()} undoes all mutations
+ * performed so far, in reverse order, leaving the document exactly as it was
+ * (including the order of object members).</p>
+ *
+ * <p>The cost of the journal is proportional to the number of mutations, not to
+ * the size of the document: replaced or removed values are kept by reference,
+ * never copied. The only exception is member order: the first time a member
+ * is removed from an object, the names of its members are recorded; removed
+ * members are put back at the end of their object, and each such object is
+ * reordered once, after all mutations have been undone.</p>
+ */
+final class UndoJournal
+    extends NodeMutator
+{
+    private final List<Undo> entries = Lists.newArrayList();
+
+    /*
+     * Member names of objects, in order, before their first member removal
+     */
+    private final Map<ObjectNode, List<String>> memberOrders
+        = new IdentityHashMap<ObjectNode, List<String>>();
+
+    @Override
+    void put(final ObjectNode object, final String name, final JsonNode value)
+    {
+        final JsonNode old = object.get(name);
+        super.put(object, name, value);
+        if (old == null)
+            entries.add(new Undo()
+            {
+                @Override
+                void undo()
+                {
+                    object.remove(name);
+                }
+            });
+        else
+            entries.add(new Undo()
+            {
+                @Override
+                void undo()
+                {
+                    object.put(name, old);
+                }
+            });
+    }
+
+    @Override
+    void remove(final ObjectNode object, final String name)
+    {
+        final JsonNode old = object.get(name);
+        if (old == null)
+            return;
+        if (!memberOrders.containsKey(object))
+            memberOrders.put(object, Lists.newArrayList(object.fieldNames()));
+        super.remove(object, name);
+        entries.add(new Undo()
+        {
+            @Override
+            void undo()
+            {
+                object.put(name, old);
+            }
+        });
+    }
+
+    @Override
+    void add(final ArrayNode array, final JsonNode value)
+    {
+        super.add(array, value);
+        final int index = array.size() - 1;
+        entries.add(new Undo()
+        {
+            @Override
+            void undo()
+            {
+                array.remove(index);
+            }
+        });
+    }
+
+    @Override
+    void insert(final ArrayNode array, final int index, final JsonNode value)
+    {
+        /*
+         * ArrayNode.insert() appends when the index is past the end
+         */
+        final int actual = Math.max(0, Math.min(index, array.size()));
+        super.insert(array, actual, value);
+        entries.add(new Undo()
+        {
+            @Override
+            void undo()
+            {
+                array.remove(actual);
+            }
+        });
+    }
+
+    @Override
+    void set(final ArrayNode array, final int index, final JsonNode value)
+    {
+        final JsonNode old = array.get(index);
+        super.set(array, index, value);
+        entries.add(new Undo()
+        {
+            @Override
+            void undo()
+            {
+                array.set(index, old);
+            }
+        });
+    }
+
+    @Override
+    void remove(final ArrayNode array, final int index)
+    {
+        final JsonNode old = array.get(index);
+        if (old == null)
+            return;
+        super.remove(array, index);
+        entries.add(new Undo()
+        {
+            @Override
+            void undo()
+            {
+                array.insert(index, old);
+            }
+        });
+    }
+
+    /**
+     * Undo all recorded mutations, most recent first
+     *
+     * <p>The journal is empty after this method returns.</p>
+     */
+    void rollback()
+    {
+        for (int i = entries.size() - 1; i >= 0; i--)
+            entries.get(i).undo();
+        entries.clear();
+        for (final Map.Entry<ObjectNode, List<String>> entry:
+            memberOrders.entrySet())
+            reorder(entry.getKey(), entry.getValue());
+        memberOrders.clear();
+    }
+
+    /*
+     * ObjectNode has no way to insert a member at a given position; the
+     * object is rebuilt, unless its members are already in order. Members
+     * added by this journal, whether before or after the names were recorded,
+     * have all been removed by then.
+     */
+    private static void reorder(final ObjectNode object,
+        final List<String> names)
+    {
+        if (Iterators.elementsEqual(object.fieldNames(), names.iterator()))
+            return;
+        final Map<String, JsonNode> members = Maps.newHashMap();
+        final Iterator<Map.Entry<String, JsonNode>> iterator = object.fields();
+        Map.Entry<String, JsonNode> entry;
+        while (iterator.hasNext()) {
+            entry = iterator.next();
+            members.put(entry.getKey(), entry.getValue());
+        }
+        object.removeAll();
+        JsonNode value;
+        for (final String name: names) {
+            value = members.get(name);
+            if (value != null)
+                object.put(name, value);
+        }
+    }
+
+    private abstract static class Undo
+    {
+        abstract void undo();
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+
+package com.github.fge.jsonpatch.diff;
+
+/**
+ * How {@link JsonDiff} compares arrays
+ *
+ * <p>This only applies to patches generated as per RFC 6902, that is without
+ * key fields.</p>
+ *
+ * @see JsonDiff#asJsonPatchUsing(com.fasterxml.jackson.databind.JsonNode,
+ * com.fasterxml.jackson.databind.JsonNode, ArrayDiffStrategy)
+ */
+public enum ArrayDiffStrategy
+{
+    /**
+     * Compare elements at the same index; elements past the end of the
+     * shorter array are removed or added
+     *
+     * <p>This is the default. It is cheap, but inserting or removing an
+     * element anywhere but at the end of an array changes all elements after
+     * it.</p>
+     */
+    POSITIONAL,
+    /**
+     * Keep the longest common subsequence of both arrays, and only add or
+     * remove the other elements
+     *
+     * <p>Elements are compared by value, as per {@link
+     * com.github.fge.jackson.JsonNumEquals}. Removed elements immediately
+     * followed by added elements are diffed pairwise instead.</p>
+     *
+     * <p>The subsequence is computed with Myers' algorithm, in its linear
+     * space variant: time is proportional to the size of the arrays times the
+     * number of differences, memory to the size of the arrays.</p>
+     *
+     * <p>Note that {@link com.github.fge.jsonpatch.AddOperation} does not add
+     * a value to an array already containing it: patches which add duplicate
+     * elements, or move elements, do not give back the target when applied
+     * by this library. See {@link JsonDiff#asJsonPatchUsing(
+     * com.fasterxml.jackson.databind.JsonNode,
+     * com.fasterxml.jackson.databind.JsonNode, ArrayDiffStrategy)}.</p>
+     */
+    LCS
+}
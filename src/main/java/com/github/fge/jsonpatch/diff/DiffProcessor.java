@@ -21,29 +21,149 @@ package com.github.fge.jsonpatch.diff;
 
 import com.github.fge.jsonpatch.diff.DiffOperation;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.github.fge.jackson.JsonNumEquals;
 import com.github.fge.jackson.jsonpointer.JsonPointer;
 import com.github.fge.jsonpatch.JsonPatch;
 import com.github.fge.jsonpatch.JsonPatchOperation;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Equivalence;
-import com.google.common.base.Predicate;
-import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 
-import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 
 // TODO: cleanup
 final class DiffProcessor {
-	private static final Equivalence<JsonNode> EQUIVALENCE = JsonNumEquals.getInstance();
+	private final StructuralEquivalence equivalence;
 
-	private final Map<JsonPointer, JsonNode> unchanged;
+	/*
+	 * Pointers to values which are the same in the source and target, and
+	 * those values, in the order in which they were found
+	 */
+	private final List<JsonPointer> unchangedPointers = Lists.newArrayList();
+	private final List<JsonNode> unchangedValues = Lists.newArrayList();
 
+	/*
+	 * Operations, in order; removals factorized into moves are replaced with
+	 * null so that positions recorded in removedIndex remain valid
+	 */
 	private final List<DiffOperation> diffs = Lists.newArrayList();
 
-	DiffProcessor(final Map<JsonPointer, JsonNode> unchanged) {
-		this.unchanged = ImmutableMap.copyOf(unchanged);
+	/*
+	 * Positions in diffs of removals not yet factorized into moves, by removed
+	 * value; removals up to position indexedDiffs are accounted for
+	 */
+	private final Map<Equivalence.Wrapper<JsonNode>, Queue<Integer>> removedIndex = Maps.newHashMap();
+	private int indexedDiffs = 0;
+
+	/*
+	 * Whether there are additions which may be turned into copies
+	 */
+	private boolean hasAdditions = false;
+
+	/*
+	 * While strictly positive, unchanged values are not recorded; see
+	 * suspendUnchanged()
+	 */
+	private int unchangedSuspended = 0;
+
+	/*
+	 * Whether sibling subtrees may be diffed in parallel; see newBuffer()
+	 */
+	private final boolean parallel;
+
+	/*
+	 * Positions in diffs of removals made by arrayElementRemoved(), if this
+	 * processor is a buffer; null otherwise
+	 */
+	private final BitSet pinnedRemovals;
+
+	DiffProcessor(final StructuralEquivalence equivalence) {
+		this(equivalence, false, null);
+	}
+
+	private DiffProcessor(final StructuralEquivalence equivalence, final boolean parallel,
+			final BitSet pinnedRemovals) {
+		this.equivalence = equivalence;
+		this.parallel = parallel;
+		this.pinnedRemovals = pinnedRemovals;
+	}
+
+	/*
+	 * A processor for a diff whose sibling subtrees may be diffed in parallel;
+	 * the equivalence must be safe for concurrent use
+	 */
+	static DiffProcessor forParallelDiff(final StructuralEquivalence equivalence) {
+		return new DiffProcessor(equivalence, true, null);
+	}
+
+	StructuralEquivalence getEquivalence() {
+		return equivalence;
+	}
+
+	boolean isParallel() {
+		return parallel;
+	}
+
+	/*
+	 * A processor recording the diff of a subtree, to be merged into this one
+	 * with merge()
+	 *
+	 * Whether an addition is a move depends on all removals before it in the
+	 * whole diff; a buffer therefore only records operations, as is, and they
+	 * are factorized when merged into a processor which is not a buffer. Since
+	 * merging replays operations in order, the result is the same as if the
+	 * subtree had been diffed by this processor directly.
+	 */
+	DiffProcessor newBuffer() {
+		final DiffProcessor ret = new DiffProcessor(equivalence, parallel, new BitSet());
+		ret.unchangedSuspended = unchangedSuspended;
+		return ret;
+	}
+
+	void merge(final DiffProcessor buffer) {
+		unchangedPointers.addAll(buffer.unchangedPointers);
+		unchangedValues.addAll(buffer.unchangedValues);
+
+		DiffOperation op;
+
+		for (int i = 0; i < buffer.diffs.size(); i++) {
+			op = buffer.diffs.get(i);
+			if (op.getType() == DiffOperation.Type.ADD)
+				valueAdded(op.getPath(), op.getValue());
+			else if (buffer.pinnedRemovals.get(i))
+				arrayElementRemoved(op.getFrom(), op.getOldValue());
+			else
+				diffs.add(op);
+		}
+	}
+
+	void valueUnchanged(final JsonPointer pointer, final JsonNode value) {
+		if (unchangedSuspended > 0)
+			return;
+		unchangedPointers.add(pointer);
+		unchangedValues.add(value);
+	}
+
+	/*
+	 * Stop recording unchanged values, until a matching call to
+	 * resumeUnchanged()
+	 *
+	 * Additions anywhere in the patch may be turned into copies of unchanged
+	 * values, so the pointer to an unchanged value must be valid throughout
+	 * the patch; this is not the case for array elements whose index changes
+	 * while the patch is applied.
+	 */
+	void suspendUnchanged() {
+		unchangedSuspended++;
+	}
+
+	void resumeUnchanged() {
+		unchangedSuspended--;
 	}
 
 	void valueReplaced(final JsonPointer pointer, final JsonNode oldValue, final JsonNode newValue) {
@@ -54,18 +174,41 @@ final class DiffProcessor {
 		diffs.add(DiffOperation.remove(pointer, value));
 	}
 
+	/*
+	 * Removal of an array element which is never factorized into a move: the
+	 * element would otherwise stay in place until the move, and indices of
+	 * later operations on the array would be wrong
+	 */
+	void arrayElementRemoved(final JsonPointer pointer, final JsonNode value) {
+		if (pinnedRemovals != null) {
+			pinnedRemovals.set(diffs.size());
+			diffs.add(DiffOperation.remove(pointer, value));
+			return;
+		}
+		indexRemovals();
+		diffs.add(DiffOperation.remove(pointer, value));
+		indexedDiffs++;
+	}
+
 	void valueAdded(final JsonPointer pointer, final JsonNode value) {
-		final int removalIndex = findPreviouslyRemoved(value);
+		if (pinnedRemovals != null) {
+			diffs.add(DiffOperation.add(pointer, value));
+			return;
+		}
+		final Equivalence.Wrapper<JsonNode> key = equivalence.wrap(value);
+		final int removalIndex = findPreviouslyRemoved(key);
 		if (removalIndex != -1) {
 			final DiffOperation removed = diffs.get(removalIndex);
-			diffs.remove(removalIndex);
+			diffs.set(removalIndex, null);
 			diffs.add(DiffOperation.move(removed.getFrom(), value, pointer, value));
 			return;
 		}
-		final JsonPointer ptr = findUnchangedValue(value);
-		final DiffOperation op = ptr != null ? DiffOperation.copy(ptr, pointer, value) : DiffOperation.add(pointer, value);
-
-		diffs.add(op);
+		/*
+		 * Whether the value can be copied from an unchanged value is only known
+		 * once the whole tree has been seen; see getPatch()
+		 */
+		diffs.add(DiffOperation.add(pointer, value));
+		hasAdditions = true;
 	}
 
 	/**
@@ -89,32 +232,83 @@ final class DiffProcessor {
 
 	JsonPatch getPatch() {
 		final List<JsonPatchOperation> list = Lists.newArrayList();
+		final Map<Equivalence.Wrapper<JsonNode>, JsonPointer> unchangedIndex = indexUnchangedValues();
 
-		for (final DiffOperation op : diffs)
-			list.add(op.asJsonPatchOperation());
+		JsonPointer ptr;
+
+		for (final DiffOperation op : diffs) {
+			if (op == null)
+				continue;
+			if (op.getType() == DiffOperation.Type.ADD
+					&& (ptr = unchangedIndex.get(equivalence.wrap(op.getValue()))) != null)
+				list.add(DiffOperation.copy(ptr, op.getPath(), op.getValue()).asJsonPatchOperation());
+			else
+				list.add(op.asJsonPatchOperation());
+		}
 
 		return new JsonPatch(list);
 	}
 
-	@Nullable
-	private JsonPointer findUnchangedValue(final JsonNode value) {
-		final Predicate<JsonNode> predicate = EQUIVALENCE.equivalentTo(value);
-		for (final Map.Entry<JsonPointer, JsonNode> entry : unchanged.entrySet())
-			if (predicate.apply(entry.getValue()))
-				return entry.getKey();
-		return null;
+	@VisibleForTesting
+	Map<JsonPointer, JsonNode> getUnchangedValues() {
+		final Map<JsonPointer, JsonNode> ret = Maps.newHashMap();
+		for (int i = 0; i < unchangedPointers.size(); i++)
+			ret.put(unchangedPointers.get(i), unchangedValues.get(i));
+		return ret;
+	}
+
+	/*
+	 * Operations as recorded, before additions are turned into copies
+	 */
+	@VisibleForTesting
+	List<DiffOperation> getDiffOperations() {
+		final List<DiffOperation> ret = Lists.newArrayList();
+		for (final DiffOperation op : diffs)
+			if (op != null)
+				ret.add(op);
+		return ret;
 	}
 
-	private int findPreviouslyRemoved(final JsonNode value) {
-		final Predicate<JsonNode> predicate = EQUIVALENCE.equivalentTo(value);
+	/*
+	 * Index unchanged values with the first pointer they were found at; this
+	 * is only done if there is an addition which may turn out to be a copy
+	 */
+	private Map<Equivalence.Wrapper<JsonNode>, JsonPointer> indexUnchangedValues() {
+		if (!hasAdditions)
+			return Collections.emptyMap();
+
+		final Map<Equivalence.Wrapper<JsonNode>, JsonPointer> ret = Maps.newHashMap();
+		for (int i = 0; i < unchangedValues.size(); i++) {
+			final Equivalence.Wrapper<JsonNode> wrapper = equivalence.wrap(unchangedValues.get(i));
+			if (!ret.containsKey(wrapper))
+				ret.put(wrapper, unchangedPointers.get(i));
+		}
+		return ret;
+	}
+
+	private int findPreviouslyRemoved(final Equivalence.Wrapper<JsonNode> key) {
+		indexRemovals();
+
+		final Queue<Integer> positions = removedIndex.get(key);
+		if (positions == null || positions.isEmpty())
+			return -1;
+		return positions.remove();
+	}
 
+	private void indexRemovals() {
 		DiffOperation op;
 
-		for (int i = 0; i < diffs.size(); i++) {
-			op = diffs.get(i);
-			if (op.getType() == DiffOperation.Type.REMOVE && predicate.apply(op.getOldValue()))
-				return i;
+		for (; indexedDiffs < diffs.size(); indexedDiffs++) {
+			op = diffs.get(indexedDiffs);
+			if (op == null || op.getType() != DiffOperation.Type.REMOVE)
+				continue;
+			final Equivalence.Wrapper<JsonNode> wrapper = equivalence.wrap(op.getOldValue());
+			Queue<Integer> positions = removedIndex.get(wrapper);
+			if (positions == null) {
+				positions = new ArrayDeque<Integer>();
+				removedIndex.put(wrapper, positions);
+			}
+			positions.add(indexedDiffs);
 		}
-		return -1;
 	}
 }
@@ -21,23 +21,26 @@ package com.github.fge.jsonpatch.diff;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
+import javax.annotation.Nullable;
 import javax.annotation.ParametersAreNonnullByDefault;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.TreeNode;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import com.github.fge.jackson.JacksonUtils;
-import com.github.fge.jackson.JsonNumEquals;
 import com.github.fge.jackson.NodeType;
 import com.github.fge.jackson.jsonpointer.JsonPointer;
 import com.github.fge.jackson.jsonpointer.JsonPointerException;
@@ -47,9 +50,10 @@ import com.github.fge.jsonpatch.JsonPatchMessages;
 import com.github.fge.msgsimple.bundle.MessageBundle;
 import com.github.fge.msgsimple.load.MessageBundles;
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.base.Equivalence;
+import com.google.common.collect.HashMultiset;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Multiset;
 import com.google.common.collect.Sets;
 
 /**
@@ -86,7 +90,6 @@ public final class JsonDiff {
 	private static final MessageBundle BUNDLE = MessageBundles.getBundle(JsonPatchMessages.class);
 	private static final ObjectMapper MAPPER = JacksonUtils.newMapper();
 
-	private static final Equivalence<JsonNode> EQUIVALENCE = JsonNumEquals.getInstance();
 	private static Logger logger = LoggerFactory.getLogger(JsonDiff.class);
 
 	private JsonDiff() {
@@ -105,12 +108,110 @@ public final class JsonDiff {
 	 * @since 1.9
 	 */
 	public static JsonPatch asJsonPatch(final JsonNode source, final JsonNode target) {
+		return asJsonPatchUsing(source, target, ArrayDiffStrategy.POSITIONAL);
+	}
+
+	/**
+	 * Generate a JSON patch for transforming the source node into the target
+	 * node, comparing arrays with the given strategy
+	 *
+	 * <p>
+	 * The generated patch is valid as per RFC 6902, but this library's
+	 * {@code add} does not insert a value into an array which already
+	 * contains an equal value. With {@link ArrayDiffStrategy#LCS}, a patch
+	 * which adds such a value will therefore not turn {@code source} into
+	 * {@code target} when applied with {@link JsonPatch#apply(JsonNode)}; this
+	 * happens when the target array has duplicates which the source does not
+	 * have (diffing {@code ["x","y"]} against {@code ["y","x","y"]} gives
+	 * {@code add /0 "y"}), and when elements are moved, since the moved
+	 * element is added before its former occurrence is removed. Patches which
+	 * only remove elements, or add values not already in the array, are
+	 * applied as expected.
+	 * </p>
+	 *
+	 * @param source
+	 *            the node to be patched
+	 * @param target
+	 *            the expected result after applying the patch
+	 * @param strategy
+	 *            how to compare arrays
+	 * @return the patch as a {@link JsonPatch}
+	 */
+	public static JsonPatch asJsonPatchUsing(final JsonNode source, final JsonNode target,
+			final ArrayDiffStrategy strategy) {
 		BUNDLE.checkNotNull(source, "common.nullArgument");
 		BUNDLE.checkNotNull(target, "common.nullArgument");
-		final Map<JsonPointer, JsonNode> unchanged = getUnchangedValues(source, target);
-		final DiffProcessor processor = new DiffProcessor(unchanged);
+		BUNDLE.checkNotNull(strategy, "common.nullArgument");
+		final DiffProcessor processor = new DiffProcessor(new StructuralEquivalence());
 
-		generateDiffs(processor, JsonPointer.empty(), source, target);
+		generateDiffs(processor, JsonPointer.empty(), source, target, strategy);
+		return processor.getPatch();
+	}
+
+	/**
+	 * Generate a JSON patch for transforming the source node into the target
+	 * node, diffing large sibling subtrees in parallel
+	 *
+	 * <p>
+	 * The generated patch is the same as the one generated by
+	 * {@link #asJsonPatch(JsonNode, JsonNode)}.
+	 * </p>
+	 *
+	 * @param source
+	 *            the node to be patched
+	 * @param target
+	 *            the expected result after applying the patch
+	 * @param pool
+	 *            the pool to run the diff in
+	 * @return the patch as a {@link JsonPatch}
+	 */
+	public static JsonPatch asJsonPatchInParallel(final JsonNode source, final JsonNode target,
+			final ForkJoinPool pool) {
+		return asJsonPatchInParallel(source, target, ArrayDiffStrategy.POSITIONAL, pool);
+	}
+
+	/**
+	 * Generate a JSON patch for transforming the source node into the target
+	 * node, comparing arrays with the given strategy and diffing large sibling
+	 * subtrees in parallel
+	 *
+	 * <p>
+	 * The generated patch is the same as the one generated by
+	 * {@link #asJsonPatchUsing(JsonNode, JsonNode, ArrayDiffStrategy)}. With
+	 * {@link ArrayDiffStrategy#LCS}, elements of arrays are always diffed
+	 * sequentially; members of objects in them may not be.
+	 * </p>
+	 *
+	 * @param source
+	 *            the node to be patched
+	 * @param target
+	 *            the expected result after applying the patch
+	 * @param strategy
+	 *            how to compare arrays
+	 * @param pool
+	 *            the pool to run the diff in
+	 * @return the patch as a {@link JsonPatch}
+	 */
+	public static JsonPatch asJsonPatchInParallel(final JsonNode source, final JsonNode target,
+			final ArrayDiffStrategy strategy, final ForkJoinPool pool) {
+		BUNDLE.checkNotNull(source, "common.nullArgument");
+		BUNDLE.checkNotNull(target, "common.nullArgument");
+		BUNDLE.checkNotNull(strategy, "common.nullArgument");
+		BUNDLE.checkNotNull(pool, "common.nullArgument");
+		final StructuralEquivalence equivalence = StructuralEquivalence.concurrent();
+		final DiffProcessor processor = DiffProcessor.forParallelDiff(equivalence);
+
+		pool.invoke(new RecursiveAction() {
+			@Override
+			protected void compute() {
+				/*
+				 * Hash both trees first: the first equivalence check would
+				 * otherwise hash them entirely, in a single thread
+				 */
+				equivalence.hashInParallel(source, target);
+				generateDiffs(processor, JsonPointer.empty(), source, target, strategy);
+			}
+		});
 		return processor.getPatch();
 	}
 
@@ -125,19 +226,97 @@ public final class JsonDiff {
 	 * @return the patch as a {@link JsonNode}
 	 */
 	public static JsonNode asJson(final JsonNode source, final JsonNode target) {
-		final String s;
+		return asJsonUsing(source, target, ArrayDiffStrategy.POSITIONAL);
+	}
+
+	/**
+	 * Generate a JSON patch for transforming the source node into the target
+	 * node, comparing arrays with the given strategy
+	 *
+	 * @param source
+	 *            the node to be patched
+	 * @param target
+	 *            the expected result after applying the patch
+	 * @param strategy
+	 *            how to compare arrays
+	 * @return the patch as a {@link JsonNode}
+	 */
+	public static JsonNode asJsonUsing(final JsonNode source, final JsonNode target,
+			final ArrayDiffStrategy strategy) {
 		try {
-			s = MAPPER.writeValueAsString(asJsonPatch(source, target));
-			return MAPPER.readTree(s);
+			return toTree(asJsonPatchUsing(source, target, strategy));
 		} catch (IOException e) {
 			throw new RuntimeException("cannot generate JSON diff", e);
 		}
 	}
 
+	/**
+	 * Generate a JSON patch for transforming the source node into the target
+	 * node, and write it to a generator
+	 *
+	 * <p>
+	 * The patch is written directly; no intermediate {@link JsonNode} is
+	 * built. The generator is not closed.
+	 * </p>
+	 *
+	 * @param generator
+	 *            the generator to write the patch to
+	 * @param source
+	 *            the node to be patched
+	 * @param target
+	 *            the expected result after applying the patch
+	 * @throws IOException
+	 *             failed to write to the generator
+	 */
+	public static void writeTo(final JsonGenerator generator, final JsonNode source, final JsonNode target)
+			throws IOException {
+		BUNDLE.checkNotNull(generator, "common.nullArgument");
+		final JsonPatch patch = asJsonPatch(source, target);
+
+		/*
+		 * Values are written as trees, which requires a codec
+		 */
+		if (generator.getCodec() != null) {
+			MAPPER.writeValue(generator, patch);
+			return;
+		}
+		generator.setCodec(MAPPER);
+		try {
+			MAPPER.writeValue(generator, patch);
+		} finally {
+			generator.setCodec(null);
+		}
+	}
+
+	/*
+	 * The patch is serialized into a token buffer, from which the tree is
+	 * built; no JSON text is produced or parsed.
+	 *
+	 * Operations write their values as trees; a plain token buffer would keep
+	 * them as embedded objects, which would end up as POJO nodes, so they are
+	 * written token by token instead.
+	 */
+	private static JsonNode toTree(final JsonPatch patch) throws IOException {
+		final TokenBuffer buffer = new TokenBuffer(MAPPER) {
+			@Override
+			public void writeTree(final TreeNode node) throws IOException {
+				if (node == null)
+					writeNull();
+				else
+					MAPPER.writeValue(this, node);
+			}
+		};
+
+		MAPPER.writeValue(buffer, patch);
+		return MAPPER.readTree(buffer.asParser());
+	}
+
 	private static void generateDiffs(final DiffProcessor processor, final JsonPointer pointer, final JsonNode source,
-			final JsonNode target) {
-		if (EQUIVALENCE.equivalent(source, target))
+			final JsonNode target, final ArrayDiffStrategy strategy) {
+		if (processor.getEquivalence().equivalent(source, target)) {
+			processor.valueUnchanged(pointer, target);
 			return;
+		}
 
 		final NodeType firstType = NodeType.getNodeType(source);
 		final NodeType secondType = NodeType.getNodeType(target);
@@ -166,13 +345,15 @@ public final class JsonDiff {
 		 * delegate.
 		 */
 		if (firstType == NodeType.OBJECT)
-			generateObjectDiffs(processor, pointer, (ObjectNode) source, (ObjectNode) target);
+			generateObjectDiffs(processor, pointer, (ObjectNode) source, (ObjectNode) target, strategy);
+		else if (strategy == ArrayDiffStrategy.LCS)
+			generateLcsArrayDiffs(processor, pointer, (ArrayNode) source, (ArrayNode) target);
 		else // array
 			generateArrayDiffs(processor, pointer, (ArrayNode) source, (ArrayNode) target);
 	}
 
 	private static void generateObjectDiffs(final DiffProcessor processor, final JsonPointer pointer,
-			final ObjectNode source, final ObjectNode target) {
+			final ObjectNode source, final ObjectNode target, final ArrayDiffStrategy strategy) {
 		final Set<String> firstFields = Sets.newTreeSet(Sets.newHashSet(source.fieldNames()));
 		final Set<String> secondFields = Sets.newTreeSet(Sets.newHashSet(target.fieldNames()));
 
@@ -182,8 +363,14 @@ public final class JsonDiff {
 		for (final String field : Sets.difference(secondFields, firstFields))
 			processor.valueAdded(pointer.append(field), target.get(field));
 
+		if (processor.isParallel()) {
+			final List<String> fields = Lists.newArrayList(Sets.intersection(firstFields, secondFields));
+			new SiblingDiffTask(processor, pointer, source, target, fields, 0, fields.size(), strategy).invoke();
+			return;
+		}
+
 		for (final String field : Sets.intersection(firstFields, secondFields))
-			generateDiffs(processor, pointer.append(field), source.get(field), target.get(field));
+			generateDiffs(processor, pointer.append(field), source.get(field), target.get(field), strategy);
 	}
 
 	private static void generateArrayDiffs(final DiffProcessor processor, final JsonPointer pointer,
@@ -199,68 +386,163 @@ public final class JsonDiff {
 		for (int index = size; index < firstSize; index++)
 			processor.valueRemoved(pointer.append(size), source.get(index));
 
-		for (int index = 0; index < size; index++)
-			generateDiffs(processor, pointer.append(index), source.get(index), target.get(index));
+		if (processor.isParallel())
+			new SiblingDiffTask(processor, pointer, source, target, null, 0, size, ArrayDiffStrategy.POSITIONAL)
+					.invoke();
+		else
+			for (int index = 0; index < size; index++)
+				generateDiffs(processor, pointer.append(index), source.get(index), target.get(index),
+						ArrayDiffStrategy.POSITIONAL);
 
 		// Deal with the destination array being larger...
 		for (int index = size; index < secondSize; index++)
 			processor.valueAdded(pointer.append("-"), target.get(index));
 	}
 
-	@VisibleForTesting
-	static Map<JsonPointer, JsonNode> getUnchangedValues(final JsonNode source, final JsonNode target) {
-		final Map<JsonPointer, JsonNode> ret = Maps.newHashMap();
-		computeUnchanged(ret, JsonPointer.empty(), source, target);
-		return ret;
-	}
-
-	private static void computeUnchanged(final Map<JsonPointer, JsonNode> ret, final JsonPointer pointer,
-			final JsonNode first, final JsonNode second) {
-		if (EQUIVALENCE.equivalent(first, second)) {
-			ret.put(pointer, second);
-			return;
-		}
+	private static void generateLcsArrayDiffs(final DiffProcessor processor, final JsonPointer pointer,
+			final ArrayNode source, final ArrayNode target) {
+		final int firstSize = source.size();
+		final int secondSize = target.size();
+		final int[] matches = MyersDiff.matches(processor.getEquivalence(), source, target);
 
-		final NodeType firstType = NodeType.getNodeType(first);
-		final NodeType secondType = NodeType.getNodeType(second);
+		/*
+		 * Operations are generated in index order: once an index is dealt
+		 * with, the element at this index never moves again. Until an element
+		 * is added or removed, elements are at the same index in the source,
+		 * the target, and at any time while the patch is applied; past this
+		 * point, this is no longer true and unchanged values are not recorded.
+		 */
+		int sourceIndex = 0;
+		int targetIndex = 0;
+		int index = 0;
+		boolean shifted = false;
+
+		while (sourceIndex < firstSize || targetIndex < secondSize) {
+			int sourceEnd = sourceIndex;
+			while (sourceEnd < firstSize && matches[sourceEnd] == -1)
+				sourceEnd++;
+			final int targetEnd = sourceEnd < firstSize ? matches[sourceEnd] : secondSize;
+
+			// Elements replaced by other elements are diffed pairwise
+			while (sourceIndex < sourceEnd && targetIndex < targetEnd)
+				generateDiffs(processor, pointer.append(index++), source.get(sourceIndex++),
+						target.get(targetIndex++), ArrayDiffStrategy.LCS);
+
+			if (sourceIndex < sourceEnd || targetIndex < targetEnd) {
+				if (!shifted)
+					processor.suspendUnchanged();
+				shifted = true;
+			}
 
-		if (firstType != secondType)
-			return; // nothing in common
+			while (sourceIndex < sourceEnd)
+				processor.arrayElementRemoved(pointer.append(index), source.get(sourceIndex++));
 
-		// We know they are both the same type, so...
+			// Past the last common element, add at the end of the array
+			while (targetIndex < targetEnd) {
+				processor.valueAdded(sourceIndex == firstSize ? pointer.append("-") : pointer.append(index),
+						target.get(targetIndex++));
+				index++;
+			}
 
-		switch (firstType) {
-		case OBJECT:
-			computeObject(ret, pointer, first, second);
-			break;
-		case ARRAY:
-			computeArray(ret, pointer, first, second);
-			break;
-		default:
-			/* nothing */
+			if (sourceIndex < firstSize) {
+				processor.valueUnchanged(pointer.append(index++), target.get(targetIndex));
+				sourceIndex++;
+				targetIndex++;
+			}
 		}
+
+		if (shifted)
+			processor.resumeUnchanged();
 	}
 
-	private static void computeObject(final Map<JsonPointer, JsonNode> ret, final JsonPointer pointer,
-			final JsonNode source, final JsonNode target) {
-		final Iterator<String> firstFields = source.fieldNames();
+	/*
+	 * Diff of the children of two containers having the same type, from start
+	 * (inclusive) to end (exclusive); children of objects are designated by
+	 * their name in fields, children of arrays (fields is null) by their index
+	 *
+	 * Ranges of children are split in two until they are small enough; the
+	 * first half is diffed by this task's processor, the second half by a
+	 * buffer which is merged afterwards, so that the order of operations is
+	 * that of a sequential diff.
+	 */
+	private static final class SiblingDiffTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
 
-		String name;
+		/*
+		 * Minimum number of nodes (approximately) worth diffing in a separate
+		 * task
+		 */
+		private static final int FORK_THRESHOLD = 256;
+
+		private final DiffProcessor processor;
+		private final JsonPointer pointer;
+		private final JsonNode source;
+		private final JsonNode target;
+		private final List<String> fields;
+		private final int start;
+		private final int end;
+		private final ArrayDiffStrategy strategy;
+
+		private SiblingDiffTask(final DiffProcessor processor, final JsonPointer pointer, final JsonNode source,
+				final JsonNode target, @Nullable final List<String> fields, final int start, final int end,
+				final ArrayDiffStrategy strategy) {
+			this.processor = processor;
+			this.pointer = pointer;
+			this.source = source;
+			this.target = target;
+			this.fields = fields;
+			this.start = start;
+			this.end = end;
+			this.strategy = strategy;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start > 1 && weight() >= FORK_THRESHOLD) {
+				final int middle = (start + end) >>> 1;
+				final SiblingDiffTask second = new SiblingDiffTask(processor.newBuffer(), pointer, source, target,
+						fields, middle, end, strategy);
+				invokeAll(new SiblingDiffTask(processor, pointer, source, target, fields, start, middle, strategy),
+						second);
+				processor.merge(second.processor);
+				return;
+			}
 
-		while (firstFields.hasNext()) {
-			name = firstFields.next();
-			if (!target.has(name))
-				continue;
-			computeUnchanged(ret, pointer.append(name), source.get(name), target.get(name));
+			for (int i = start; i < end; i++)
+				if (fields == null)
+					generateDiffs(processor, pointer.append(i), source.get(i), target.get(i), strategy);
+				else
+					generateDiffs(processor, pointer.append(fields.get(i)), source.get(fields.get(i)),
+							target.get(fields.get(i)), strategy);
+		}
+
+		/*
+		 * Only direct children are counted: counting all nodes would require
+		 * walking them
+		 */
+		private int weight() {
+			int ret = 0;
+			for (int i = start; i < end; i++)
+				if (fields == null)
+					ret += 1 + source.get(i).size() + target.get(i).size();
+				else
+					ret += 1 + source.get(fields.get(i)).size() + target.get(fields.get(i)).size();
+			return ret;
 		}
 	}
 
-	private static void computeArray(final Map<JsonPointer, JsonNode> ret, final JsonPointer pointer,
-			final JsonNode source, final JsonNode target) {
-		final int size = Math.min(source.size(), target.size());
+	@VisibleForTesting
+	static Map<JsonPointer, JsonNode> getUnchangedValues(final JsonNode source, final JsonNode target) {
+		final DiffProcessor processor = new DiffProcessor(new StructuralEquivalence());
+		generateDiffs(processor, JsonPointer.empty(), source, target, ArrayDiffStrategy.POSITIONAL);
+		return processor.getUnchangedValues();
+	}
 
-		for (int i = 0; i < size; i++)
-			computeUnchanged(ret, pointer.append(i), source.get(i), target.get(i));
+	@VisibleForTesting
+	static List<DiffOperation> getDiffOperations(final JsonNode source, final JsonNode target) {
+		final DiffProcessor processor = new DiffProcessor(new StructuralEquivalence());
+		generateDiffs(processor, JsonPointer.empty(), source, target, ArrayDiffStrategy.POSITIONAL);
+		return processor.getDiffOperations();
 	}
 
 	// Custom changes to existing Methods
@@ -282,11 +564,8 @@ public final class JsonDiff {
 	 */
 	public static JsonNode asJson(final JsonNode source, final JsonNode target,
 			Map<JsonPointer, String> attributesKeyFields) throws JsonDiffException {
-		final String s;
-
 		try {
-			s = MAPPER.writeValueAsString(asJsonPatch(source, target, attributesKeyFields));
-			return MAPPER.readTree(s);
+			return toTree(asJsonPatch(source, target, attributesKeyFields));
 		} catch (IOException e) {
 			throw new JsonDiffException(BUNDLE.getMessage("jsonDiff.generic"), e);
 		}
@@ -316,8 +595,7 @@ public final class JsonDiff {
 		BUNDLE.checkNotNull(source, "common.nullArgument");
 		BUNDLE.checkNotNull(target, "common.nullArgument");
 
-		final Map<JsonPointer, JsonNode> unchanged = getUnchangedValues(source, target);
-		final DiffProcessor processor = new DiffProcessor(unchanged);
+		final DiffProcessor processor = new DiffProcessor(new StructuralEquivalence());
 
 		generateDiffs(processor, JsonPointer.empty(), source, target, attributesKeyFields);
 		return processor.getPatch();
@@ -345,8 +623,10 @@ public final class JsonDiff {
 			final JsonNode target, Map<JsonPointer, String> attributesKeyFields)
 			throws JsonDiffException {
 
-		if (EQUIVALENCE.equivalent(source, target))
+		if (processor.getEquivalence().equivalent(source, target)) {
+			processor.valueUnchanged(pointer, target);
 			return;
+		}
 		final NodeType firstType = NodeType.getNodeType(source);
 		final NodeType secondType = NodeType.getNodeType(target);
 		/*
@@ -541,6 +821,10 @@ public final class JsonDiff {
 			}
 		} else {
 			// Few Added, Few Removed Elements
+			// Elements are matched by value or by key below, not by position;
+			// elements, or members of keyed elements, which are the same at
+			// the same position are recorded as unchanged while matching, so
+			// that additions may still be turned into copies
 			// Null check to Avoid null pointer exception to Map
 			if (attributesKeyFields == null) {
 				generateArrayDiffForNullOrNoKey(processor, pointer, source, target);
@@ -554,15 +838,22 @@ public final class JsonDiff {
 					// is Not present
 					generateArrayDiffForNullOrNoKey(processor, pointer, source, target);
 				} else {
-					// Array Object without Key Field
-					List<String> targetObjectList = new ArrayList<String>(targetSize);
-					List<String> objectToRemoveList = new LinkedList<String>();
-					// get all Primary Key values from target to a List
+					// Array Object with Key Field
+					// Index target positions by Primary Key value, so that
+					// each source Object is matched in constant time
+					Map<String, List<Integer>> targetIndex = Maps.newHashMapWithExpectedSize(targetSize);
+					Set<String> matchedKeys = Sets.newHashSet();
 					for (int j = 0; j < targetSize; j++) {
 						JsonNode targetObject = target.get(j);
 						if (targetObject != null && targetObject.has(keyFieldValue)
 								&& targetObject.get(keyFieldValue).isTextual()) {
-							targetObjectList.add(targetObject.get(keyFieldValue).asText());
+							String key = targetObject.get(keyFieldValue).asText();
+							List<Integer> positions = targetIndex.get(key);
+							if (positions == null) {
+								positions = new ArrayList<Integer>(1);
+								targetIndex.put(key, positions);
+							}
+							positions.add(j);
 						} else {
 							throw new JsonDiffException(BUNDLE.getMessage("jsonDiff.PrimaryKeyMissing"));
 						}
@@ -571,18 +862,16 @@ public final class JsonDiff {
 					for (int j = 0; j < sourceSize; j++) {
 						// Comparing Each source Object with Target Objects
 						// //only Key Comparison
-						generateObjectInArrayDiffs(processor, pointer.append(j), source.get(j), target,
-								targetObjectList, keyFieldValue, objectToRemoveList, attributesKeyFields);
+						generateObjectInArrayDiffs(processor, pointer.append(j), j, source.get(j), target,
+								targetIndex, keyFieldValue, matchedKeys, attributesKeyFields);
 					}
-					targetObjectList.removeAll(objectToRemoveList);
 					for (int i = 0; i < targetSize; i++) {
-						if (targetObjectList.contains(target.get(i).get(keyFieldValue).asText())) {
+						if (!matchedKeys.contains(target.get(i).get(keyFieldValue).asText())) {
 							// After Evaluating all Now we do the remaining
 							// addition
 							processor.valueAdded(pointer.append("-"), target.get(i));
 						}
 					}
-					targetObjectList.clear();
 				}
 			} else {
 				// This Function is used to calculate Array Diff in case Key is
@@ -610,37 +899,43 @@ public final class JsonDiff {
 			final ArrayNode source, final ArrayNode target) {
 		{
 			logger.debug("Key Field Not Available for Pointer at  : {}", pointer);
+			final StructuralEquivalence equivalence = processor.getEquivalence();
 			// Treat Whole Thing as an Key itself
 
-			List<JsonNode> toAddList = Lists.newArrayList(target.iterator());
-			List<JsonNode> toRemoveList = new ArrayList<JsonNode>();
-			//
-			// for (JsonNode eachTargetElement : target) {
-			// // add All Target Elements to TargetList
-			// targetList.add(eachTargetElement);
-			// }
-			for (JsonNode eachSourceElement : source) {
-				if (toAddList.contains(eachSourceElement)) {
-					// if source contains elements that are present in
-					// targetList then remove from targetList i.e. at the end of
-					// for-loop we will get list of added object in targetList
-					toAddList.remove(eachSourceElement);
+			// Target elements not yet matched by a source element, counted
+			// by value
+			Multiset<JsonNode> toAddSet = HashMultiset.create(target);
+			// Target elements matched by a source element, counted by value
+			Multiset<JsonNode> matchedSet = HashMultiset.create();
+			Set<JsonNode> toRemoveSet = Sets.newHashSet();
 
+			JsonNode eachSourceElement;
+			for (int k = 0; k < source.size(); k++) {
+				eachSourceElement = source.get(k);
+				if (k < target.size() && equivalence.equivalent(eachSourceElement, target.get(k)))
+					processor.valueUnchanged(pointer.append(k), target.get(k));
+				if (toAddSet.remove(eachSourceElement)) {
+					// if source contains elements that are present in
+					// target then they are neither added nor removed
+					matchedSet.add(eachSourceElement);
 				} else {
-					// if source contains elements that are not in targetList
-					// add them to sourceList i.e list of Deleted String
-					toRemoveList.add(eachSourceElement);
+					// if source contains elements that are not in target
+					// they are to be removed
+					toRemoveSet.add(eachSourceElement);
 				}
 			}
-			// Remove String that is in SourceList
+			// Remove Elements whose value is not in target
 			for (int k = 0; k < source.size(); k++) {
-				if (toRemoveList.contains(source.get(k))) {
+				if (toRemoveSet.contains(source.get(k))) {
 					processor.arrayObjectValueRemoved(pointer.append(k), source.get(k));
 				}
 			}
-			// Add Strings that are in target List
-			for (JsonNode eachAdd : toAddList) {
-				processor.valueAdded(pointer.append("-"), eachAdd);
+			// Add Elements that are in target, in order; the first occurrences
+			// of a value are those matched by source elements
+			for (JsonNode eachTargetElement : target) {
+				if (!matchedSet.remove(eachTargetElement)) {
+					processor.valueAdded(pointer.append("-"), eachTargetElement);
+				}
 			}
 		}
 	}
@@ -652,13 +947,17 @@ public final class JsonDiff {
 	 * 
 	 * @param processor
 	 * @param pointer
+	 * @param index
+	 *            position of the source Object in its array
 	 * @param source
 	 *            old json
 	 * @param target
 	 *            new json
-	 * @param targetObjectList
+	 * @param targetIndex
+	 *            positions of target Objects, by Primary Key value
 	 * @param keyFieldValue
-	 * @param objectToRemoveList
+	 * @param matchedKeys
+	 *            Primary Key values found in both source and target
 	 * @param attributesKeyFields
 	 *            can be null but needed for denoting custom operations.
 	 * 
@@ -669,25 +968,27 @@ public final class JsonDiff {
 	 *
 	 */
 	public static void generateObjectInArrayDiffs(final DiffProcessor processor, JsonPointer pointer,
-			final JsonNode source, final JsonNode target, final List<String> targetObjectList,
-			final String keyFieldValue, final List<String> objectToRemoveList,
+			final int index, final JsonNode source, final JsonNode target, final Map<String, List<Integer>> targetIndex,
+			final String keyFieldValue, final Set<String> matchedKeys,
 			final Map<JsonPointer, String> attributesKeyFields) throws JsonDiffException {
-		int targetSize = target.size();
 		// check weather the key field matches
 		JsonNode sourceObject = source.get(keyFieldValue);
 		if(sourceObject == null || sourceObject.isContainerNode()){
 			throw new JsonDiffException(BUNDLE.getMessage("jsonDiff.PrimaryKeyMissing"));
 		}else{
-			if (targetObjectList.contains(sourceObject.asText())) {
+			List<Integer> positions = targetIndex.get(sourceObject.asText());
+			if (positions != null) {
 				// Key Matched
-				objectToRemoveList.add(sourceObject.asText());
+				matchedKeys.add(sourceObject.asText());
 				// check if internal Field Matches
-				for (int i = 0; i < targetSize; i++) {
+				for (int i : positions) {
 					if (target.get(i).get(keyFieldValue).equals(sourceObject)) {
 						if (!target.get(i).equals(source)) {
 							// If Content at Source and Target Does not Matches
 							// Sending Data For Replace Operation
-							generateCustomDiffs(processor, pointer, source, target.get(i));
+							generateCustomDiffs(processor, pointer, source, target.get(i), i == index);
+						} else if (i == index) {
+							processor.valueUnchanged(pointer, target.get(i));
 						}
 					}
 				}
@@ -709,15 +1010,20 @@ public final class JsonDiff {
 	 *            old json
 	 * @param target
 	 *            new json
+	 * @param samePosition
+	 *            whether source and target are at the same position in their
+	 *            arrays, in which case equal members are recorded as unchanged
 	 * 
 	 */
 	public static void generateCustomDiffs(final DiffProcessor processor, JsonPointer pointer, final JsonNode source,
-			final JsonNode target) {
+			final JsonNode target, final boolean samePosition) {
 		final Set<String> sourceFields = Sets.newTreeSet(Sets.newHashSet(source.fieldNames()));
 		final Set<String> targetFields = Sets.newTreeSet(Sets.newHashSet(target.fieldNames()));
 		for (String field : sourceFields) {
 			if (!(source.get(field).equals(target.get(field)))) {
 				processor.arrayObjectValueReplaced(pointer.append(field), source, target.get(field));
+			} else if (samePosition) {
+				processor.valueUnchanged(pointer.append(field), target.get(field));
 			}
 		}
 		for (final String field : Sets.difference(targetFields, sourceFields)) {
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+
+package com.github.fge.jsonpatch.diff;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.Arrays;
+
+/**
+ * Longest common subsequence of two arrays, using Myers' algorithm
+ *
+ * <p>This is the linear space variant of the algorithm: the middle snake of
+ * the edit graph is found by searching from both ends at once, and both halves
+ * on each side of it are then solved independently. Common prefixes and
+ * suffixes are matched before any search.</p>
+ *
+ * <p>Elements are compared using a {@link StructuralEquivalence}; their hashes
+ * are computed once, so that most comparisons of different elements are a
+ * comparison of two ints.</p>
+ *
+ * @see <a href="http://www.xmailserver.org/diff2.pdf">An O(ND) Difference
+ * Algorithm and Its Variations</a>
+ */
+final class MyersDiff
+{
+    private final StructuralEquivalence equivalence;
+    private final JsonNode source;
+    private final JsonNode target;
+    private final int[] sourceHashes;
+    private final int[] targetHashes;
+    private final int[] matches;
+
+    private MyersDiff(final StructuralEquivalence equivalence,
+        final JsonNode source, final JsonNode target)
+    {
+        this.equivalence = equivalence;
+        this.source = source;
+        this.target = target;
+        sourceHashes = hashes(equivalence, source);
+        targetHashes = hashes(equivalence, target);
+        matches = new int[source.size()];
+        Arrays.fill(matches, -1);
+    }
+
+    /**
+     * Match elements of two arrays
+     *
+     * @param equivalence the equivalence to compare elements with
+     * @param source the first array
+     * @param target the second array
+     * @return for each element of the first array, the index of the element of
+     * the second array it is matched with, or -1; matched indices are
+     * increasing
+     */
+    static int[] matches(final StructuralEquivalence equivalence,
+        final JsonNode source, final JsonNode target)
+    {
+        final MyersDiff diff = new MyersDiff(equivalence, source, target);
+        diff.lcs(0, source.size(), 0, target.size());
+        return diff.matches;
+    }
+
+    private void lcs(int sourceStart, int sourceEnd, int targetStart,
+        int targetEnd)
+    {
+        while (sourceStart < sourceEnd && targetStart < targetEnd
+            && equal(sourceStart, targetStart))
+            matches[sourceStart++] = targetStart++;
+
+        while (sourceStart < sourceEnd && targetStart < targetEnd
+            && equal(sourceEnd - 1, targetEnd - 1))
+            matches[--sourceEnd] = --targetEnd;
+
+        if (sourceStart == sourceEnd || targetStart == targetEnd)
+            return;
+
+        final int[] snake = middleSnake(sourceStart, sourceEnd, targetStart,
+            targetEnd);
+
+        for (int x = snake[0], y = snake[1]; x < snake[2]; x++, y++)
+            matches[x] = y;
+
+        lcs(sourceStart, snake[0], targetStart, snake[1]);
+        lcs(snake[2], sourceEnd, snake[3], targetEnd);
+    }
+
+    /*
+     * Returns the start and end points of the middle snake, in this order, as
+     * absolute indices into the source and target
+     *
+     * Diagonals are numbered by x - y, x and y being offsets into the source
+     * and target; the backward search uses offsets from the end of both
+     * sequences, so that forward diagonal k is backward diagonal delta - k.
+     */
+    private int[] middleSnake(final int sourceStart, final int sourceEnd,
+        final int targetStart, final int targetEnd)
+    {
+        final int n = sourceEnd - sourceStart;
+        final int m = targetEnd - targetStart;
+        final int delta = n - m;
+        final boolean odd = (delta & 1) != 0;
+        final int max = (n + m + 1) / 2;
+        final int offset = max + 1;
+        final int[] forward = new int[2 * max + 3];
+        final int[] backward = new int[2 * max + 3];
+
+        int x, y, startX, startY;
+
+        for (int d = 0; d <= max; d++) {
+            for (int k = -d; k <= d; k += 2) {
+                if (k == -d || k != d
+                    && forward[offset + k - 1] < forward[offset + k + 1])
+                    x = forward[offset + k + 1];
+                else
+                    x = forward[offset + k - 1] + 1;
+                y = x - k;
+                startX = x;
+                startY = y;
+                while (x < n && y < m
+                    && equal(sourceStart + x, targetStart + y)) {
+                    x++;
+                    y++;
+                }
+                forward[offset + k] = x;
+                if (odd && delta - k >= -(d - 1) && delta - k <= d - 1
+                    && x + backward[offset + delta - k] >= n)
+                    return new int[] {
+                        sourceStart + startX, targetStart + startY,
+                        sourceStart + x, targetStart + y
+                    };
+            }
+            for (int k = -d; k <= d; k += 2) {
+                if (k == -d || k != d
+                    && backward[offset + k - 1] < backward[offset + k + 1])
+                    x = backward[offset + k + 1];
+                else
+                    x = backward[offset + k - 1] + 1;
+                y = x - k;
+                startX = x;
+                startY = y;
+                while (x < n && y < m
+                    && equal(sourceEnd - x - 1, targetEnd - y - 1)) {
+                    x++;
+                    y++;
+                }
+                backward[offset + k] = x;
+                if (!odd && delta - k >= -d && delta - k <= d
+                    && x + forward[offset + delta - k] >= n)
+                    return new int[] {
+                        sourceEnd - x, targetEnd - y,
+                        sourceEnd - startX, targetEnd - startY
+                    };
+            }
+        }
+
+        throw new IllegalStateException("no middle snake found");
+    }
+
+    private boolean equal(final int sourceIndex, final int targetIndex)
+    {
+        return sourceHashes[sourceIndex] == targetHashes[targetIndex]
+            && equivalence.equivalent(source.get(sourceIndex),
+                target.get(targetIndex));
+    }
+
+    private static int[] hashes(final StructuralEquivalence equivalence,
+        final JsonNode array)
+    {
+        final int[] ret = new int[array.size()];
+        for (int i = 0; i < ret.length; i++)
+            ret[i] = equivalence.hash(array.get(i));
+        return ret;
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch.diff;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jackson.JsonNumEquals;
+import com.google.common.base.Equivalence;
+import com.google.common.collect.Lists;
+import com.google.common.collect.MapMaker;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * {@link JsonNumEquals} equivalence with a memoized, order independent hash
+ *
+ * <p>The hash of {@link JsonNumEquals} depends on the order of object members,
+ * whereas its equivalence does not; two equivalent objects may therefore have
+ * different hashes. This class uses the same equivalence, but hashes object
+ * members independently of their order.</p>
+ *
+ * <p>Hashes are computed bottom up and remembered by node identity, so that
+ * each node of a tree is hashed only once however many times it is looked at.
+ * This allows {@link #equivalent(Object, Object)} to reject two nodes with
+ * different hashes without walking them.</p>
+ *
+ * <p>Since nodes are remembered by identity, an instance must not outlive the
+ * nodes it is used on, nor be used on nodes which are modified meanwhile: use
+ * one instance per diff.</p>
+ *
+ * <p>Instances are not thread safe, except those obtained with {@link
+ * #concurrent()}.</p>
+ */
+final class StructuralEquivalence
+    extends Equivalence<JsonNode>
+{
+    private static final Equivalence<JsonNode> EQUIVALENCE
+        = JsonNumEquals.getInstance();
+
+    /*
+     * Minimum number of nodes (approximately) worth hashing in a separate task
+     */
+    private static final int FORK_THRESHOLD = 1024;
+
+    private final Map<JsonNode, Integer> hashes;
+
+    StructuralEquivalence()
+    {
+        this(new IdentityHashMap<JsonNode, Integer>());
+    }
+
+    private StructuralEquivalence(final Map<JsonNode, Integer> hashes)
+    {
+        this.hashes = hashes;
+    }
+
+    /**
+     * Return an instance which can be used by several threads at once
+     *
+     * <p>Weak keys are compared by identity, which is what we want here; they
+     * are never collected while the diff runs, since the nodes are referenced
+     * by the trees being diffed.</p>
+     *
+     * @return a new instance
+     */
+    static StructuralEquivalence concurrent()
+    {
+        return new StructuralEquivalence(new MapMaker().weakKeys()
+            .<JsonNode, Integer>makeMap());
+    }
+
+    /**
+     * Hash nodes and all their descendants, hashing large sibling subtrees in
+     * parallel
+     *
+     * <p>This must be called from a {@link ForkJoinPool}, on an instance
+     * obtained with {@link #concurrent()}.</p>
+     *
+     * @param nodes the nodes
+     */
+    void hashInParallel(final JsonNode... nodes)
+    {
+        new HashTask(Arrays.asList(nodes), 0, nodes.length).invoke();
+    }
+
+    @Override
+    protected boolean doEquivalent(final JsonNode a, final JsonNode b)
+    {
+        if (doHash(a) != doHash(b))
+            return false;
+        return EQUIVALENCE.equivalent(a, b);
+    }
+
+    @Override
+    protected int doHash(final JsonNode t)
+    {
+        /*
+         * Mathematically equal numbers have the same double value
+         */
+        if (t.isNumber())
+            return Double.valueOf(t.doubleValue()).hashCode();
+        if (!t.isContainerNode())
+            return t.hashCode();
+
+        final Integer known = hashes.get(t);
+        if (known != null)
+            return known;
+
+        int ret = 0;
+
+        if (t.isArray()) {
+            for (final JsonNode element: t)
+                ret = 31 * ret + doHash(element);
+        } else {
+            final Iterator<Map.Entry<String, JsonNode>> iterator = t.fields();
+            Map.Entry<String, JsonNode> entry;
+
+            while (iterator.hasNext()) {
+                entry = iterator.next();
+                ret += entry.getKey().hashCode() ^ doHash(entry.getValue());
+            }
+        }
+
+        hashes.put(t, ret);
+        return ret;
+    }
+
+    private final class HashTask
+        extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final List<JsonNode> nodes;
+        private final int start;
+        private final int end;
+
+        private HashTask(final List<JsonNode> nodes, final int start,
+            final int end)
+        {
+            this.nodes = nodes;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (end - start > 1 && weight() >= FORK_THRESHOLD) {
+                final int middle = (start + end) >>> 1;
+                invokeAll(new HashTask(nodes, start, middle),
+                    new HashTask(nodes, middle, end));
+                return;
+            }
+
+            JsonNode node;
+
+            for (int i = start; i < end; i++) {
+                node = nodes.get(i);
+                if (node.size() >= FORK_THRESHOLD) {
+                    final List<JsonNode> children
+                        = Lists.newArrayList(node.elements());
+                    new HashTask(children, 0, children.size()).compute();
+                }
+                hash(node);
+            }
+        }
+
+        /*
+         * Only direct children are counted: counting all nodes would require
+         * walking them, which is what we are trying to split
+         */
+        private int weight()
+        {
+            int ret = 0;
+            for (int i = start; i < end; i++)
+                ret += 1 + nodes.get(i).size();
+            return ret;
+        }
+    }
+}
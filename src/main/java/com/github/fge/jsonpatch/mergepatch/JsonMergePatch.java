@@ -19,19 +19,34 @@
 
 package com.github.fge.jsonpatch.mergepatch;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.JsonSerializable;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.jackson.JsonNumEquals;
 import com.github.fge.jsonpatch.JsonPatch;
 import com.github.fge.jsonpatch.JsonPatchException;
 import com.github.fge.jsonpatch.JsonPatchMessages;
 import com.github.fge.msgsimple.bundle.MessageBundle;
 import com.github.fge.msgsimple.load.MessageBundles;
+import com.google.common.base.Equivalence;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
 import javax.annotation.ParametersAreNonnullByDefault;
 import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Implementation of JSON Merge Patch (RFC 7386)
@@ -69,6 +84,8 @@ public abstract class JsonMergePatch
     private static final ObjectMapper MAPPER = JacksonUtils.newMapper();
     protected static final MessageBundle BUNDLE
         = MessageBundles.getBundle(JsonPatchMessages.class);
+    private static final Equivalence<JsonNode> EQUIVALENCE
+        = JsonNumEquals.getInstance();
 
     /**
      * Build an instance from a JSON input
@@ -90,6 +107,137 @@ public abstract class JsonMergePatch
         }
     }
 
+    /**
+     * Generate a JSON Merge Patch from a source and target JSON value
+     *
+     * <p>Both values are walked once, together; only members of objects which
+     * differ are part of the patch, other values are replaced as a whole. The
+     * patch is built directly, without generating a JSON Patch first.</p>
+     *
+     * <p>Since a null member in a patch means that the member is removed, a
+     * JSON Merge Patch cannot set a member to null: null members of objects in
+     * the target are treated as if they were absent, unless they are also null
+     * in the source.</p>
+     *
+     * <p>The values of the patch are copied from the target, which can
+     * therefore be modified afterwards.</p>
+     *
+     * @param source the node to be patched
+     * @param target the expected result after applying the patch
+     * @return the patch
+     * @throws NullPointerException source or target is null
+     */
+    public static JsonMergePatch diff(final JsonNode source,
+        final JsonNode target)
+    {
+        BUNDLE.checkNotNull(source, "common.nullArgument");
+        BUNDLE.checkNotNull(target, "common.nullArgument");
+        if (!target.isObject())
+            return new NonObjectMergePatch(target.deepCopy());
+
+        /*
+         * Unlike members, the top level value is always part of the patch,
+         * even if it is unchanged
+         */
+        final JsonMergePatch ret = diffObjects(source, (ObjectNode) target);
+        return ret != null ? ret : new ObjectMergePatch(
+            ImmutableSet.<String>of(), ImmutableMap.<String, JsonMergePatch>of());
+    }
+
+    /*
+     * Return null if applying the patch would leave the source unchanged;
+     * a source which is not an object is replaced with an empty object
+     */
+    private static JsonMergePatch diffObjects(final JsonNode source,
+        final ObjectNode target)
+    {
+        final boolean sourceIsObject = source.isObject();
+        final Set<String> removedMembers = Sets.newLinkedHashSet();
+        final Map<String, JsonMergePatch> modifiedMembers
+            = Maps.newLinkedHashMap();
+
+        Iterator<Map.Entry<String, JsonNode>> iterator;
+        Map.Entry<String, JsonNode> entry;
+        String name;
+        JsonNode sourceValue, targetValue;
+
+        if (sourceIsObject) {
+            iterator = source.fields();
+            while (iterator.hasNext()) {
+                entry = iterator.next();
+                targetValue = target.get(entry.getKey());
+                if (targetValue == null
+                    || targetValue.isNull() && !entry.getValue().isNull())
+                    removedMembers.add(entry.getKey());
+            }
+        }
+
+        iterator = target.fields();
+        JsonMergePatch patch;
+
+        while (iterator.hasNext()) {
+            entry = iterator.next();
+            name = entry.getKey();
+            targetValue = entry.getValue();
+            if (targetValue.isNull())
+                continue;
+            sourceValue = source.get(name);
+            if (targetValue.isObject()) {
+                patch = diffObjects(sourceValue == null ? NullNode.getInstance()
+                    : sourceValue, (ObjectNode) targetValue);
+                if (patch != null)
+                    modifiedMembers.put(name, patch);
+                continue;
+            }
+            if (sourceValue == null
+                || !EQUIVALENCE.equivalent(sourceValue, targetValue))
+                modifiedMembers.put(name,
+                    new NonObjectMergePatch(targetValue.deepCopy()));
+        }
+
+        if (sourceIsObject && removedMembers.isEmpty()
+            && modifiedMembers.isEmpty())
+            return null;
+        return new ObjectMergePatch(removedMembers, modifiedMembers);
+    }
+
+    /**
+     * Compose a sequence of JSON Merge Patches into a single patch
+     *
+     * <p>Applying the returned patch gives the same result as applying all
+     * patches one after the other, in order; the input is only copied once,
+     * instead of once per patch.</p>
+     *
+     * <p>Note that RFC 7386 cannot express all compositions: a member which is
+     * removed (or replaced with a value which is not an object) by a patch,
+     * then set to an object by a later patch, is replaced with that object as a
+     * whole by the returned patch, whereas the serialized form of the returned
+     * patch merges that object with the member instead. The same goes for a
+     * patch which is not an object followed by a patch which is an object.</p>
+     *
+     * <p>Values of the patches are shared with the returned patch.</p>
+     *
+     * @param patches the patches, in application order
+     * @return the composed patch
+     * @throws JsonPatchException never thrown; only for consistency with
+     * {@link JsonPatch}
+     * @throws NullPointerException one of the patches is null
+     * @throws IllegalArgumentException no patches are given
+     */
+    public static JsonMergePatch compose(final JsonMergePatch... patches)
+        throws JsonPatchException
+    {
+        BUNDLE.checkNotNull(patches, "common.nullArgument");
+        BUNDLE.checkArgument(patches.length > 0, "mergePatch.noPatches");
+
+        final Composition composition = new Composition();
+        for (final JsonMergePatch patch: patches) {
+            BUNDLE.checkNotNull(patch, "common.nullArgument");
+            patch.composeInto(composition);
+        }
+        return composition.toPatch();
+    }
+
     /**
      * Apply the patch to a given JSON value
      *
@@ -101,4 +249,195 @@ public abstract class JsonMergePatch
      */
     public abstract JsonNode apply(final JsonNode input)
         throws JsonPatchException;
+
+    /**
+     * Apply the patch to a given JSON value, sharing what the patch does not
+     * modify
+     *
+     * <p>Unlike {@link #apply(JsonNode)}, which copies the whole input, this
+     * method only creates the objects on the paths the patch modifies; every
+     * other value of the result is the very same instance as in the input. Its
+     * cost is therefore proportional to the size of the patch, not to the size
+     * of the input.</p>
+     *
+     * <p>The price is aliasing:</p>
+     *
+     * <ul>
+     *     <li>the input is never modified, but the result shares all untouched
+     *     subtrees with it: modifying one of them in the result modifies the
+     *     input, and the other way around;</li>
+     *     <li>values set by the patch are not copied either, and are shared
+     *     with the patch, and with the result of any other application of the
+     *     same patch (this is also the case with {@link #apply(JsonNode)}).
+     *     </li>
+     * </ul>
+     *
+     * <p>This mode is therefore meant for values which are treated as
+     * immutable once built; copy the result with {@link JsonNode#deepCopy()}
+     * before modifying it.</p>
+     *
+     * <p>The default implementation calls {@link #apply(JsonNode)}.</p>
+     *
+     * @param input the value to patch
+     * @return the patched value
+     * @throws JsonPatchException never thrown; only for consistency with
+     * {@link JsonPatch}
+     * @throws NullPointerException value is null
+     */
+    public JsonNode applyCopyOnWrite(final JsonNode input)
+        throws JsonPatchException
+    {
+        return apply(input);
+    }
+
+    /**
+     * Apply this patch after those already in a composition
+     *
+     * @param composition the composition
+     * @throws JsonPatchException never thrown
+     * @see #compose(JsonMergePatch...)
+     */
+    abstract void composeInto(final Composition composition)
+        throws JsonPatchException;
+
+    /**
+     * Apply the patch to a JSON value read from a parser, writing the result to
+     * a generator
+     *
+     * <p>The value to patch is not read into a tree: what the patch leaves
+     * untouched is copied token by token from the parser to the generator, so
+     * that the memory used only depends on the size of the patch.</p>
+     *
+     * <p>The parser must be positioned either on the first token of the value
+     * to patch or just before it; it is left on the last token of that value.
+     * The generator is flushed, but not closed.</p>
+     *
+     * @param source the parser to read the value to patch from
+     * @param target the generator to write the patched value to
+     * @throws IOException failed to read or write
+     * @throws NullPointerException one argument is null
+     */
+    public final void apply(final JsonParser source,
+        final JsonGenerator target)
+        throws IOException
+    {
+        BUNDLE.checkNotNull(source, "jsonPatch.nullInput");
+        BUNDLE.checkNotNull(target, "jsonPatch.nullInput");
+        if (source.getCurrentToken() == null && source.nextToken() == null)
+            throw new JsonMappingException(
+                BUNDLE.getMessage("jsonPatch.nullValue"));
+
+        /*
+         * Values of the patch are written as trees, which requires a codec
+         */
+        final ObjectCodec codec = target.getCodec();
+        if (codec == null)
+            target.setCodec(MAPPER);
+        try {
+            applyStreaming(source, target);
+        } finally {
+            if (codec == null)
+                target.setCodec(null);
+        }
+        target.flush();
+    }
+
+    /**
+     * Apply the patch to a JSON value read from a parser, writing the result to
+     * a generator
+     *
+     * <p>The parser is positioned on the first token of the value to patch, and
+     * must be left on its last token; the generator has a codec.</p>
+     *
+     * <p>The default implementation reads the value as a tree.</p>
+     *
+     * @param source the parser to read the value to patch from
+     * @param target the generator to write the patched value to
+     * @throws IOException failed to read or write
+     */
+    void applyStreaming(final JsonParser source, final JsonGenerator target)
+        throws IOException
+    {
+        final JsonNode input = MAPPER.readTree(source);
+        try {
+            target.writeTree(apply(input));
+        } catch (JsonPatchException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * The mutable result of composing patches
+     *
+     * <p>An instance either replaces the value it applies to, if {@link #value}
+     * is not null, or merges members into it. Initially, it merges nothing,
+     * which is only equivalent to applying no patches at all if it applies to
+     * an object; this is why {@link #compose(JsonMergePatch...)} requires at
+     * least one patch.</p>
+     */
+    static final class Composition
+    {
+        private JsonNode value = null;
+        private final Set<String> removedMembers = Sets.newLinkedHashSet();
+        private final Map<String, Composition> modifiedMembers
+            = Maps.newLinkedHashMap();
+
+        void replace(final JsonNode value)
+        {
+            this.value = value;
+            removedMembers.clear();
+            modifiedMembers.clear();
+        }
+
+        void merge(final ObjectMergePatch patch,
+            final Set<String> removed, final Map<String, JsonMergePatch> modified)
+            throws JsonPatchException
+        {
+            if (value != null) {
+                value = patch.applyCopyOnWrite(value);
+                return;
+            }
+
+            /*
+             * As in ObjectMergePatch.apply(), removals come after
+             * modifications
+             */
+            String key;
+            Composition member;
+            for (final Map.Entry<String, JsonMergePatch> entry:
+                modified.entrySet()) {
+                key = entry.getKey();
+                member = modifiedMembers.get(key);
+                if (member == null) {
+                    member = new Composition();
+                    /*
+                     * A removed member is missing when this patch applies,
+                     * which is the same as being null
+                     */
+                    if (removedMembers.remove(key))
+                        member.value = NullNode.getInstance();
+                    modifiedMembers.put(key, member);
+                }
+                entry.getValue().composeInto(member);
+            }
+
+            for (final String name: removed) {
+                modifiedMembers.remove(name);
+                removedMembers.add(name);
+            }
+        }
+
+        JsonMergePatch toPatch()
+        {
+            if (value != null)
+                return new NonObjectMergePatch(value);
+
+            final Map<String, JsonMergePatch> modified
+                = Maps.newLinkedHashMap();
+            for (final Map.Entry<String, Composition> entry:
+                modifiedMembers.entrySet())
+                modified.put(entry.getKey(), entry.getValue().toPatch());
+            return new ObjectMergePatch(removedMembers, modified);
+        }
+    }
 }
@@ -21,6 +21,7 @@ package com.github.fge.jsonpatch.mergepatch;
 
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.ObjectCodec;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
@@ -31,7 +32,6 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
 import java.io.IOException;
-import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 
@@ -56,35 +56,52 @@ final class JsonMergePatchDeserializer
     {
         // FIXME: see comment above
         jp.setCodec(CODEC);
-        final JsonNode node = jp.readValueAsTree();
+        if (jp.getCurrentToken() == null)
+            jp.nextToken();
+        return readPatch(jp);
+    }
+
+    /*
+     * Build the patch directly from the token stream, in one pass; only values
+     * which are not objects are read as trees. The parser is at the first
+     * token of the value (or at the first member name of an object) and is
+     * left at its last token.
+     */
+    private static JsonMergePatch readPatch(final JsonParser jp)
+        throws IOException
+    {
+        JsonToken token = jp.getCurrentToken();
 
         /*
          * Not an object: the simple case
          */
-        if (!node.isObject())
-            return new NonObjectMergePatch(node);
+        if (token != JsonToken.START_OBJECT && token != JsonToken.FIELD_NAME)
+            return new NonObjectMergePatch(jp.<JsonNode>readValueAsTree());
 
         /*
          * The complicated case...
          *
          * We have to build a set of removed members, plus a map of modified
-         * members.
+         * members. As with a tree, if a member appears more than once, the
+         * last one wins.
          */
+        final Set<String> removedMembers = Sets.newLinkedHashSet();
+        final Map<String, JsonMergePatch> modifiedMembers
+            = Maps.newLinkedHashMap();
 
-        final Set<String> removedMembers = Sets.newHashSet();
-        final Map<String, JsonMergePatch> modifiedMembers = Maps.newHashMap();
-        final Iterator<Map.Entry<String, JsonNode>> iterator = node.fields();
+        if (token == JsonToken.START_OBJECT)
+            token = jp.nextToken();
 
-        Map.Entry<String, JsonNode> entry;
+        String name;
 
-        while (iterator.hasNext()) {
-            entry = iterator.next();
-            if (entry.getValue().isNull())
-                removedMembers.add(entry.getKey());
-            else {
-                final JsonMergePatch value
-                    = deserialize(entry.getValue().traverse(), ctxt);
-                modifiedMembers.put(entry.getKey(), value);
+        for (; token != JsonToken.END_OBJECT; token = jp.nextToken()) {
+            name = jp.getCurrentName();
+            if (jp.nextToken() == JsonToken.VALUE_NULL) {
+                modifiedMembers.remove(name);
+                removedMembers.add(name);
+            } else {
+                removedMembers.remove(name);
+                modifiedMembers.put(name, readPatch(jp));
             }
         }
 
@@ -20,6 +20,7 @@
 package com.github.fge.jsonpatch.mergepatch;
 
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.SerializerProvider;
@@ -49,6 +50,27 @@ final class NonObjectMergePatch
         return node;
     }
 
+    @Override
+    public JsonNode applyCopyOnWrite(final JsonNode input)
+        throws JsonPatchException
+    {
+        return apply(input);
+    }
+
+    @Override
+    void composeInto(final Composition composition)
+    {
+        composition.replace(node);
+    }
+
+    @Override
+    void applyStreaming(final JsonParser source, final JsonGenerator target)
+        throws IOException
+    {
+        source.skipChildren();
+        target.writeTree(node);
+    }
+
     public void serialize(final JsonGenerator jgen,
         final SerializerProvider provider)
         throws IOException, JsonProcessingException
@@ -20,6 +20,8 @@
 package com.github.fge.jsonpatch.mergepatch;
 
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.SerializerProvider;
@@ -31,6 +33,7 @@ import com.github.fge.jsonpatch.JsonPatchException;
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
 
 import javax.annotation.ParametersAreNonnullByDefault;
 import java.io.IOException;
@@ -92,6 +95,109 @@ final class ObjectMergePatch
         return ret;
     }
 
+    @Override
+    public JsonNode applyCopyOnWrite(final JsonNode input)
+        throws JsonPatchException
+    {
+        BUNDLE.checkNotNull(input, "jsonPatch.nullValue");
+        /*
+         * Only this object is new; its members are those of the input, if it
+         * is an object
+         */
+        final ObjectNode ret = JacksonUtils.nodeFactory().objectNode();
+        if (input.isObject())
+            ret.setAll((ObjectNode) input);
+
+        String key;
+        JsonNode value;
+        for (final Map.Entry<String, JsonMergePatch> entry:
+            modifiedMembers.entrySet()) {
+            key = entry.getKey();
+            // See apply() for missing keys
+            value = Optional.fromNullable(ret.get(key))
+                .or(NullNode.getInstance());
+            ret.put(key, entry.getValue().applyCopyOnWrite(value));
+        }
+
+        ret.remove(removedMembers);
+
+        return ret;
+    }
+
+    @Override
+    void composeInto(final Composition composition)
+        throws JsonPatchException
+    {
+        composition.merge(this, removedMembers, modifiedMembers);
+    }
+
+    @Override
+    void applyStreaming(final JsonParser source, final JsonGenerator target)
+        throws IOException
+    {
+        /*
+         * As with apply(), a value which is not an object is replaced with an
+         * empty object
+         */
+        if (source.getCurrentToken() != JsonToken.START_OBJECT) {
+            source.skipChildren();
+            writeApplied(this, target);
+            return;
+        }
+
+        /*
+         * Members are written in the same order as apply() would: existing
+         * members in place, and members which do not exist yet at the end
+         */
+        final Set<String> patched = Sets.newHashSet();
+        String key;
+        JsonMergePatch patch;
+
+        target.writeStartObject();
+
+        while (source.nextToken() == JsonToken.FIELD_NAME) {
+            key = source.getCurrentName();
+            source.nextToken();
+            if (removedMembers.contains(key)) {
+                source.skipChildren();
+                continue;
+            }
+            target.writeFieldName(key);
+            patch = modifiedMembers.get(key);
+            if (patch == null)
+                target.copyCurrentStructure(source);
+            else {
+                patch.applyStreaming(source, target);
+                patched.add(key);
+            }
+        }
+
+        for (final Map.Entry<String, JsonMergePatch> entry:
+            modifiedMembers.entrySet()) {
+            key = entry.getKey();
+            if (patched.contains(key))
+                continue;
+            target.writeFieldName(key);
+            writeApplied(entry.getValue(), target);
+        }
+
+        target.writeEndObject();
+    }
+
+    /*
+     * Write the result of a patch applied to a missing value
+     */
+    private static void writeApplied(final JsonMergePatch patch,
+        final JsonGenerator target)
+        throws IOException
+    {
+        try {
+            target.writeTree(patch.apply(NullNode.getInstance()));
+        } catch (JsonPatchException e) {
+            throw new IOException(e);
+        }
+    }
+
     public void serialize(final JsonGenerator jgen,
         final SerializerProvider provider)
         throws IOException, JsonProcessingException
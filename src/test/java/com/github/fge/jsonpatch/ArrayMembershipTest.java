@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.jackson.JsonLoader;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.Random;
+
+import static org.testng.Assert.*;
+
+public final class ArrayMembershipTest
+{
+    private static final JsonNodeFactory FACTORY = JacksonUtils.nodeFactory();
+
+    @Test
+    public void duplicatesAreCounted()
+        throws IOException
+    {
+        final ArrayNode array = (ArrayNode) JsonLoader.fromString("[1,2,1]");
+        final JsonNode one = FACTORY.numberNode(1);
+        final NodeMutator mutator = new NodeMutator();
+
+        assertTrue(mutator.contains(array, one));
+        assertTrue(mutator.contains(array, one));
+        mutator.remove(array, 0);
+        assertTrue(mutator.contains(array, one));
+        mutator.set(array, 1, FACTORY.numberNode(3));
+        assertFalse(mutator.contains(array, one));
+        mutator.insert(array, 0, one);
+        assertTrue(mutator.contains(array, one));
+    }
+
+    @Test
+    public void elementModificationsAreSeen()
+        throws IOException
+    {
+        final ArrayNode array = (ArrayNode) JsonLoader.fromString(
+            "[{\"a\":{\"b\":[1]}},[[2]]]");
+        final NodeMutator mutator = new NodeMutator();
+        final ArrayNode inner = (ArrayNode) array.get(1).get(0);
+
+        assertFalse(mutator.contains(array, node("{\"a\":{\"b\":[2]}}")));
+        assertFalse(mutator.contains(inner, FACTORY.numberNode(3)));
+        assertFalse(mutator.contains(inner, FACTORY.numberNode(3)));
+
+        mutator.set((ArrayNode) array.get(0).get("a").get("b"), 0,
+            FACTORY.numberNode(2));
+        assertTrue(mutator.contains(array, node("{\"a\":{\"b\":[2]}}")));
+        assertFalse(mutator.contains(array, node("{\"a\":{\"b\":[1]}}")));
+
+        mutator.add(inner, FACTORY.numberNode(3));
+        assertTrue(mutator.contains(inner, FACTORY.numberNode(3)));
+        assertTrue(mutator.contains(array, node("[[2,3]]")));
+        assertFalse(mutator.contains(array, node("[[2]]")));
+
+        mutator.remove((ObjectNode) array.get(0), "a");
+        assertTrue(mutator.contains(array, node("{}")));
+    }
+
+    @Test
+    public void indicesFollowRandomModifications()
+    {
+        final Random random = new Random(42L);
+        final ArrayNode array = FACTORY.arrayNode();
+        for (int i = 0; i < 100; i++)
+            array.add(element(random));
+        final NodeMutator mutator = new NodeMutator();
+
+        ObjectNode element;
+        ArrayNode inner;
+
+        for (int round = 0; round < 2000; round++) {
+            final int size = array.size();
+            element = size == 0 ? null
+                : (ObjectNode) array.get(random.nextInt(size));
+            inner = element == null ? null : (ArrayNode) element.get("x");
+            switch (random.nextInt(7)) {
+                case 0:
+                    if (size > 0)
+                        mutator.remove(array, random.nextInt(size));
+                    break;
+                case 1:
+                    mutator.add(array, element(random));
+                    break;
+                case 2:
+                    mutator.insert(array, random.nextInt(size + 1),
+                        element(random));
+                    break;
+                case 3:
+                    if (size > 0)
+                        mutator.set(array, random.nextInt(size),
+                            element(random));
+                    break;
+                case 4:
+                    if (element != null)
+                        mutator.put(element, "a",
+                            FACTORY.numberNode(random.nextInt(4)));
+                    break;
+                case 5:
+                    if (inner != null)
+                        mutator.add(inner,
+                            FACTORY.numberNode(random.nextInt(4)));
+                    break;
+                default:
+                    if (inner != null && inner.size() > 0)
+                        mutator.remove(inner, random.nextInt(inner.size()));
+            }
+            final JsonNode value = element(random);
+            assertEquals(mutator.contains(array, value), scan(array, value),
+                "round " + round);
+            if (inner != null) {
+                final JsonNode number = FACTORY.numberNode(random.nextInt(4));
+                assertEquals(mutator.contains(inner, number),
+                    scan(inner, number), "round " + round);
+            }
+        }
+    }
+
+    @Test
+    public void patchesSkipDuplicatesOfModifiedElements()
+        throws IOException, JsonPatchException
+    {
+        final JsonNode node = node("{\"a\":[{\"b\":1},{\"b\":2}]}");
+        final JsonPatch patch = JsonPatch.fromJson(node("["
+            + "{\"op\":\"add\",\"path\":\"/a/-\",\"value\":{\"b\":2}},"
+            + "{\"op\":\"add\",\"path\":\"/a/-\",\"value\":{\"b\":3}},"
+            + "{\"op\":\"replace\",\"path\":\"/a/0/b\",\"value\":4},"
+            + "{\"op\":\"add\",\"path\":\"/a/-\",\"value\":{\"b\":1}},"
+            + "{\"op\":\"add\",\"path\":\"/a/-\",\"value\":{\"b\":4}},"
+            + "{\"op\":\"remove\",\"path\":\"/a/1\"},"
+            + "{\"op\":\"add\",\"path\":\"/a/-\",\"value\":{\"b\":2}}]"));
+
+        assertEquals(patch.apply(node),
+            node("{\"a\":[{\"b\":4},{\"b\":3},{\"b\":1},{\"b\":2}]}"));
+    }
+
+    /*
+     * Each element is modified through a value_locator, then its old and new
+     * values are appended: only the old one is missing. The first element is
+     * then moved out of the array and modified there.
+     */
+    @Test
+    public void editsOfElementsInterleavedWithAdditionsAreSeen()
+        throws IOException, JsonPatchException
+    {
+        final int count = 500;
+        final ObjectNode node = FACTORY.objectNode();
+        final ArrayNode array = node.putArray("a");
+        for (int i = 0; i < count; i++)
+            array.addObject().put("id", i).put("v", 0);
+
+        final ArrayNode operations = FACTORY.arrayNode();
+        ObjectNode operation;
+        for (int i = 0; i < count; i++) {
+            operation = operations.addObject().put("op", "replace")
+                .put("path", "/a/?/v").put("value", 1);
+            operation.putObject("value_locator").put("id", i);
+            for (int v = 0; v < 2; v++)
+                operations.addObject().put("op", "add").put("path", "/a/-")
+                    .putObject("value").put("id", i).put("v", v);
+        }
+        operations.addObject().put("op", "move").put("from", "/a/0")
+            .put("path", "/b");
+        operations.addObject().put("op", "replace").put("path", "/b/v")
+            .put("value", 2);
+        for (int v = 1; v < 3; v++)
+            operations.addObject().put("op", "add").put("path", "/a/-")
+                .putObject("value").put("id", 0).put("v", v);
+
+        final ObjectNode expected = FACTORY.objectNode();
+        final ArrayNode expectedArray = expected.putArray("a");
+        for (int i = 1; i < count; i++)
+            expectedArray.addObject().put("id", i).put("v", 1);
+        for (int i = 0; i < count; i++)
+            expectedArray.addObject().put("id", i).put("v", 0);
+        expectedArray.addObject().put("id", 0).put("v", 1);
+        expectedArray.addObject().put("id", 0).put("v", 2);
+        expected.putObject("b").put("id", 0).put("v", 2);
+
+        assertEquals(JsonPatch.fromJson(operations).apply(node, true),
+            expected);
+    }
+
+    private static ObjectNode element(final Random random)
+    {
+        final ObjectNode ret = FACTORY.objectNode();
+        ret.put("a", random.nextInt(4));
+        final ArrayNode x = ret.putArray("x");
+        for (int i = random.nextInt(3); i > 0; i--)
+            x.add(random.nextInt(4));
+        return ret;
+    }
+
+    private static boolean scan(final ArrayNode array, final JsonNode value)
+    {
+        for (final JsonNode element: array)
+            if (value.equals(element))
+                return true;
+        return false;
+    }
+
+    private static JsonNode node(final String input)
+        throws IOException
+    {
+        return JsonLoader.fromString(input);
+    }
+}
@@ -79,6 +79,32 @@ public abstract class JsonPatchOperationTest {
 		}
 	}
 
+	@Test(dataProvider = "getErrors")
+	public final void errorsAreCorrectlyReportedInPlace(final JsonNode patch, final JsonNode node, final String message)
+			throws IOException {
+		final JsonPatchOperation op = reader.readValue(patch);
+
+		try {
+			op.applyInPlace(node.deepCopy(), new NodeMutator());
+			fail("No exception thrown!!");
+		} catch (JsonPatchException e) {
+			assertEquals(e.getMessage(), message);
+		}
+	}
+
+	@Test(dataProvider = "getErrors")
+	public final void errorsAreCorrectlyReportedWhenCompiled(final JsonNode patch, final JsonNode node,
+			final String message) throws IOException {
+		final JsonPatchOperation op = reader.readValue(patch);
+
+		try {
+			op.compile().apply(node.deepCopy(), new NodeMutator());
+			fail("No exception thrown!!");
+		} catch (JsonPatchException e) {
+			assertEquals(e.getMessage(), message);
+		}
+	}
+
 	@DataProvider
 	public final Iterator<Object[]> getOps() {
 		final List<Object[]> list = Lists.newArrayList();
@@ -99,4 +125,22 @@ public abstract class JsonPatchOperationTest {
 		if (EQUIVALENCE.equivalent(node, actual) && node.isContainerNode())
 			assertNotSame(node, actual, "operation didn't make a copy of the input node");
 	}
+
+	@Test(dataProvider = "getOps")
+	public final void operationsAppliedInPlaceYieldExpectedResults(final JsonNode patch, final JsonNode node,
+			final JsonNode expected) throws IOException, JsonPatchException {
+		final JsonPatchOperation op = reader.readValue(patch);
+		final JsonNode actual = op.applyInPlace(node.deepCopy(), new NodeMutator());
+		assertTrue(EQUIVALENCE.equivalent(actual, expected),
+				"patched node differs from expectations: expected " + expected + " but found " + actual);
+	}
+
+	@Test(dataProvider = "getOps")
+	public final void compiledOperationsYieldExpectedResults(final JsonNode patch, final JsonNode node,
+			final JsonNode expected) throws IOException, JsonPatchException {
+		final JsonPatchOperation op = reader.readValue(patch);
+		final JsonNode actual = op.compile().apply(node.deepCopy(), new NodeMutator());
+		assertTrue(EQUIVALENCE.equivalent(actual, expected),
+				"patched node differs from expectations: expected " + expected + " but found " + actual);
+	}
 }
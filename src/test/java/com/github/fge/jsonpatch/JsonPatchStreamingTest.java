@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+import com.google.common.base.Charsets;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import static org.testng.Assert.*;
+
+public final class JsonPatchStreamingTest
+{
+    private static final MessageBundle BUNDLE
+        = MessageBundles.getBundle(JsonPatchMessages.class);
+    private static final JsonNodeFactory FACTORY = JacksonUtils.nodeFactory();
+
+    @Test
+    public void invalidStreamedPatchesAreRejected()
+    {
+        final String[][] inputs = {
+            { "{}", BUNDLE.getMessage("jsonPatch.notAnArray") },
+            { "[ 1 ]", BUNDLE.getMessage("jsonPatch.notAnOperation") },
+            { "[ { \"path\": \"/a\" } ]",
+                BUNDLE.printf("jsonPatch.missingMember", "op") },
+            { "[ { \"op\": \"foo\", \"path\": \"/a\" } ]",
+                BUNDLE.printf("jsonPatch.unknownOperation", "foo") },
+            { "[ { \"op\": \"add\", \"path\": \"/a\" } ]",
+                BUNDLE.printf("jsonPatch.missingMember", "value") },
+            { "[ { \"op\": \"move\", \"path\": \"/a\" } ]",
+                BUNDLE.printf("jsonPatch.missingMember", "from") },
+            { "[ { \"op\": \"remove\", \"path\": 1 } ]",
+                BUNDLE.printf("jsonPatch.notAString", "path") }
+        };
+
+        for (final String[] input: inputs)
+            try {
+                JsonPatch.fromStream(new ByteArrayInputStream(
+                    input[0].getBytes(Charsets.UTF_8)));
+                fail("No exception thrown!!");
+            } catch (IOException e) {
+                assertTrue(e.getMessage().startsWith(input[1]),
+                    e.getMessage());
+            }
+    }
+
+    @Test
+    public void streamedPatchesAreTheSameAsBoundPatches()
+        throws IOException, JsonPatchException
+    {
+        final String input = "[ { \"value\": { \"b\": [ null ] },"
+            + " \"path\": \"/a\", \"op\": \"add\", \"x\": {} },"
+            + " { \"from\": \"/a\", \"op\": \"copy\", \"path\": \"/c\" } ]";
+        final JsonPatch bound = JsonPatch.fromJson(
+            JacksonUtils.getReader().readTree(input));
+        final JsonPatch streamed = JsonPatch.fromStream(
+            new ByteArrayInputStream(input.getBytes(Charsets.UTF_8)));
+
+        assertEquals(streamed.toString(), bound.toString());
+        assertEquals(streamed.apply(FACTORY.objectNode()),
+            bound.apply(FACTORY.objectNode()));
+    }
+
+    @Test
+    public void streamedLocatorsAreTheSameAsBoundLocators()
+        throws IOException
+    {
+        final JsonNode input = JacksonUtils.getReader().readTree("["
+            + "{ \"op\": \"replace\", \"path\": \"/a\", \"value\": 1 },"
+            + "{ \"op\": \"replace\", \"path\": \"/a\", \"value\": 1,"
+            + " \"value_locator\": null },"
+            + "{ \"op\": \"remove\", \"path\": \"/d/?\","
+            + " \"value_locator\": { \"id\": 1 } } ]");
+        final ObjectReader reader = JacksonUtils.getReader()
+            .withType(JsonPatchOperation.class);
+        final JsonPatchOperationReader streamed
+            = new JsonPatchOperationReader(input.traverse());
+
+        JsonPatchOperation bound;
+        for (final JsonNode element: input) {
+            bound = reader.readValue(element);
+            assertEquals(streamed.next().getValue_locator(),
+                bound.getValue_locator(), element.toString());
+        }
+        assertNull(streamed.next());
+    }
+}
@@ -20,8 +20,12 @@
 package com.github.fge.jsonpatch;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.github.fge.jackson.JacksonUtils;
 import com.github.fge.jackson.JsonLoader;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
 import com.github.fge.jackson.jsonpointer.JsonPointerException;
+import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.Lists;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
@@ -83,4 +87,121 @@ public final class JsonPatchTestSuite
                 fail("Test was expected to succeed!!");
         }
     }
+
+    @Test(dataProvider = "getTests")
+    public void testsFromTestSuitePassInPlace(final JsonNode source,
+        final JsonPatch patch, final JsonNode expected, final boolean valid)
+    {
+        final JsonNode orig = source.deepCopy();
+        try {
+            final JsonNode actual = patch.applyInPlace(source);
+            if (!valid)
+                fail("Test was expected to fail!!");
+            assertTrue(actual.equals(expected));
+        } catch (JsonPatchException ignored) {
+            if (valid)
+                fail("Test was expected to succeed!!");
+        }
+        assertTrue(source.equals(orig), "input was modified");
+    }
+
+    @Test(dataProvider = "getTests")
+    public void testsFromTestSuitePassTransactionally(final JsonNode source,
+        final JsonPatch patch, final JsonNode expected, final boolean valid)
+    {
+        final JsonNode node = source.deepCopy();
+        try {
+            final JsonNode actual = patch.applyTransactionally(node);
+            if (!valid)
+                fail("Test was expected to fail!!");
+            assertTrue(actual.equals(expected));
+        } catch (JsonPatchException ignored) {
+            if (valid)
+                fail("Test was expected to succeed!!");
+            assertEquals(node.toString(), source.toString(),
+                "input was not rolled back");
+        }
+    }
+
+    @Test(dataProvider = "getTests")
+    public void testsFromTestSuitePassWhenCompiled(final JsonNode source,
+        final JsonPatch patch, final JsonNode expected, final boolean valid)
+    {
+        final JsonNode orig = source.deepCopy();
+        try {
+            final JsonNode actual = patch.compile().apply(source);
+            if (!valid)
+                fail("Test was expected to fail!!");
+            assertTrue(actual.equals(expected));
+        } catch (JsonPatchException ignored) {
+            if (valid)
+                fail("Test was expected to succeed!!");
+        }
+        assertTrue(source.equals(orig), "input was modified");
+    }
+
+    @Test
+    public void testSuitePatchesCanBeReadFromAParser()
+        throws IOException
+    {
+        for (final JsonNode element: testNode) {
+            if (!element.has("patch"))
+                continue;
+            final JsonNode node = element.get("patch");
+            assertEquals(JsonPatch.fromParser(node.traverse()).toString(),
+                JsonPatch.fromJson(node).toString());
+        }
+    }
+
+    @Test
+    public void testSuitePatchesCanBeAppliedAsStreams()
+        throws IOException
+    {
+        JsonNode source, expected;
+
+        for (final JsonNode element: testNode) {
+            if (!element.has("patch"))
+                continue;
+            source = element.get("doc");
+            expected = element.has("expected") ? element.get("expected")
+                : source;
+            try {
+                final JsonNode actual = JsonPatch.applyStream(
+                    element.get("patch").traverse(), source, false);
+                if (element.has("error"))
+                    fail("Test was expected to fail!!");
+                assertTrue(actual.equals(expected));
+            } catch (JsonPatchException ignored) {
+                if (!element.has("error"))
+                    fail("Test was expected to succeed!!");
+            }
+        }
+    }
+
+    @Test
+    public void operationsAreAppliedAsTheyAreIterated()
+        throws JsonPatchException
+    {
+        final JsonNodeFactory factory = JacksonUtils.nodeFactory();
+        final int count = 10000;
+        final Iterator<JsonPatchOperation> operations
+            = new AbstractIterator<JsonPatchOperation>()
+        {
+            private int i = 0;
+
+            @Override
+            protected JsonPatchOperation computeNext()
+            {
+                if (i == 2 * count)
+                    return endOfData();
+                final JsonPointer path = JsonPointer.of("k" + i % count);
+                return i++ < count
+                    ? new AddOperation(path, factory.numberNode(i))
+                    : new RemoveOperation(path);
+            }
+        };
+
+        final JsonNode node = factory.objectNode().put("a", 1);
+        assertEquals(JsonPatch.applyStream(operations, node, true), node);
+    }
 }
@@ -0,0 +1,364 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+
+package com.github.fge.jsonpatch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.jackson.JsonLoader;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Lists;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Random;
+
+import static org.testng.Assert.*;
+
+public final class LocatorCacheTest
+{
+    private static final JsonNodeFactory FACTORY = JacksonUtils.nodeFactory();
+
+    @Test
+    public void firstMatchingElementIsFound()
+        throws IOException
+    {
+        final ArrayNode array = (ArrayNode) JsonLoader.fromString(
+            "[{\"a\":1},{\"a\":2,\"b\":true},3,{\"b\":true,\"a\":2}]");
+        final LocatorCache index = new LocatorCache();
+
+        assertEquals(index.indexOf(array, locator("{\"a\":2,\"b\":true}")), 1);
+        assertEquals(index.indexOf(array, locator("{\"b\":true}")), 1);
+        assertEquals(index.indexOf(array, locator("{\"a\":1}")), 0);
+        assertEquals(index.indexOf(array, locator("{\"a\":3}")), -1);
+        assertEquals(index.indexOf(array, locator("{\"c\":null}")), -1);
+    }
+
+    @Test
+    public void arrayModificationsAreSeen()
+        throws IOException
+    {
+        final ArrayNode array = (ArrayNode) JsonLoader.fromString(
+            "[{\"a\":1},{\"a\":2},{\"a\":3}]");
+        final LocatorCache index = new LocatorCache();
+        final JsonNode locator = locator("{\"a\":3}");
+
+        assertEquals(index.indexOf(array, locator), 2);
+        index.remove(array, 0);
+        assertEquals(index.indexOf(array, locator), 1);
+        index.insert(array, 0, FACTORY.objectNode().put("a", 3));
+        assertEquals(index.indexOf(array, locator), 0);
+        index.set(array, 0, FACTORY.nullNode());
+        assertEquals(index.indexOf(array, locator), 2);
+    }
+
+    @Test
+    public void elementModificationsAreSeen()
+        throws IOException
+    {
+        final ArrayNode array = (ArrayNode) JsonLoader.fromString(
+            "[{\"a\":{\"x\":[1]}},{\"a\":{\"x\":[2]}}]");
+        final LocatorCache index = new LocatorCache();
+        final JsonNode locator = locator("{\"a\":{\"x\":[2]}}");
+
+        assertEquals(index.indexOf(array, locator), 1);
+        index.set((ArrayNode) array.get(0).get("a").get("x"), 0,
+            FACTORY.numberNode(2));
+        assertEquals(index.indexOf(array, locator), 0);
+        index.remove((ObjectNode) array.get(0), "a");
+        assertEquals(index.indexOf(array, locator), 1);
+    }
+
+    @Test
+    public void indicesFollowRandomModifications()
+    {
+        final Random random = new Random(42L);
+        final ArrayNode array = FACTORY.arrayNode();
+        for (int i = 0; i < 200; i++)
+            array.add(element(random));
+        final LocatorStatistics statistics = new LocatorStatistics();
+        final LocatorCache cache = new LocatorCache(statistics);
+        final JsonNode[] locators = {
+            FACTORY.objectNode().put("a", 3),
+            FACTORY.objectNode().put("a", 5).put("b", "x"),
+            FACTORY.objectNode().put("b", "y")
+        };
+
+        ObjectNode element;
+
+        for (int round = 0; round < 2000; round++) {
+            final int size = array.size();
+            switch (random.nextInt(6)) {
+                case 0:
+                    if (size > 0)
+                        cache.remove(array, random.nextInt(size));
+                    break;
+                case 1:
+                    cache.add(array, element(random));
+                    break;
+                case 2:
+                    cache.insert(array, random.nextInt(size + 1),
+                        element(random));
+                    break;
+                case 3:
+                    if (size > 0)
+                        cache.set(array, random.nextInt(size),
+                            element(random));
+                    break;
+                case 4:
+                    if (size == 0)
+                        break;
+                    element = (ObjectNode) array.get(random.nextInt(size));
+                    cache.put(element, "a",
+                        FACTORY.numberNode(random.nextInt(10)));
+                    break;
+                default:
+                    if (size == 0)
+                        break;
+                    element = (ObjectNode) array.get(random.nextInt(size));
+                    cache.remove(element, "b");
+            }
+            for (final JsonNode locator: locators)
+                assertEquals(cache.indexOf(array, locator),
+                    scan(array, locator), "round " + round);
+        }
+        assertTrue(statistics.getLocatorHits() > 0);
+    }
+
+    @Test
+    public void pointerResolutionsAreForgottenWhenTheyChange()
+        throws IOException
+    {
+        final JsonNode node = JsonLoader.fromString(
+            "{\"a\":{\"b\":[1,2]},\"c\":{}}");
+        final JsonPointer pointer = JsonPointer.of("a", "b");
+        final LocatorStatistics statistics = new LocatorStatistics();
+        final LocatorCache cache = new LocatorCache(statistics);
+
+        assertSame(cache.get(pointer, node), node.get("a").get("b"));
+        cache.put((ObjectNode) node.get("c"), "d", FACTORY.nullNode());
+        assertSame(cache.get(pointer, node), node.get("a").get("b"));
+        assertEquals(statistics.getPointerHits(), 1L);
+
+        cache.put((ObjectNode) node.get("a"), "b", FACTORY.arrayNode());
+        assertSame(cache.get(pointer, node), node.get("a").get("b"));
+        cache.remove((ObjectNode) node, "a");
+        assertNull(cache.get(pointer, node));
+        assertEquals(statistics.getPointerMisses(), 3L);
+    }
+
+    @Test
+    public void statisticsAddUpAcrossApplications()
+        throws IOException, JsonPatchException
+    {
+        final JsonNode node = JsonLoader.fromString(
+            "{\"a\":[{\"id\":1,\"v\":0},{\"id\":2,\"v\":0}]}");
+        final JsonPatch patch = JsonPatch.fromJson(FACTORY.arrayNode()
+            .add(replace("/a/?/v", "id", FACTORY.numberNode(1)))
+            .add(replace("/a/?/v", "id", FACTORY.numberNode(2)))
+            .add(replace("/a/?/v", "id", FACTORY.numberNode(1))));
+        final LocatorStatistics statistics = new LocatorStatistics();
+
+        patch.apply(node, true, statistics);
+        assertEquals(statistics.getLocatorMisses(), 1L);
+        assertEquals(statistics.getLocatorHits(), 2L);
+        final long pointerHits = statistics.getPointerHits();
+        final long pointerMisses = statistics.getPointerMisses();
+        assertTrue(pointerHits > 0L);
+
+        patch.apply(node, true, statistics);
+        assertEquals(statistics.getLocatorMisses(), 2L);
+        assertEquals(statistics.getLocatorHits(), 4L);
+        assertEquals(statistics.getPointerHits(), 2 * pointerHits);
+        assertEquals(statistics.getPointerMisses(), 2 * pointerMisses);
+        assertEquals(statistics.getEvictions(), 0L);
+    }
+
+    @Test
+    public void slotsOfRemovedElementsAreReclaimed()
+    {
+        final ArrayNode array = FACTORY.arrayNode();
+        for (int i = 0; i < 100; i++)
+            array.add(FACTORY.objectNode().put("a", i));
+        final LocatorCache cache = new LocatorCache();
+        JsonNode locator;
+
+        for (int i = 100; i < 100000; i++) {
+            cache.add(array, FACTORY.objectNode().put("a", i));
+            cache.remove(array, 0);
+            locator = FACTORY.objectNode().put("a", i - 50);
+            assertEquals(cache.indexOf(array, locator), 49);
+            assertTrue(cache.size() <= 4 * array.size() + 32, "round " + i);
+        }
+    }
+
+    /*
+     * A long stream of operations against a document of fixed size: appends
+     * at the end of an array and removals from its front, lookups by scalar
+     * and container values, modifications of container values, and lookups
+     * in more arrays, through more pointers, than the cache keeps
+     */
+    @Test
+    public void cacheStaysBoundedInLongStreams()
+        throws JsonPatchException
+    {
+        final int itemCount = 100;
+        final int groupCount = 2 * LocatorCache.MAX_RESOLUTIONS;
+        final int operationCount = 60000;
+        final int bound = 2 * LocatorCache.MAX_RESOLUTIONS
+            + 8 * LocatorCache.MAX_INDICES + 16 * itemCount;
+
+        final ObjectNode node = FACTORY.objectNode();
+        final ArrayNode items = node.putArray("items");
+        for (int id = 0; id < itemCount; id++)
+            items.add(item(id));
+        final ObjectNode groups = node.putObject("groups");
+        for (int group = 0; group < groupCount; group++)
+            groups.putArray("g" + group).add(item(group));
+
+        final Random random = new Random(42L);
+        final LocatorStatistics statistics = new LocatorStatistics();
+        final LocatorCache cache = new LocatorCache(statistics);
+        final Iterator<JsonNode> operations = new AbstractIterator<JsonNode>()
+        {
+            private int round = 0;
+            private int first = 0;
+            private int next = itemCount;
+
+            @Override
+            protected JsonNode computeNext()
+            {
+                if (round == operationCount)
+                    return endOfData();
+                assertTrue(cache.size() <= bound, "round " + round);
+                final int id = first + random.nextInt(itemCount);
+                switch (round++ % 6) {
+                    case 0:
+                        return replace("/items/?/v", "id",
+                            FACTORY.numberNode(id));
+                    case 1:
+                        return FACTORY.objectNode().put("op", "add")
+                            .put("path", "/items/-")
+                            .set("value", item(next++));
+                    case 2:
+                        first++;
+                        return FACTORY.objectNode().put("op", "remove")
+                            .put("path", "/items/0");
+                    case 3:
+                        final int group = round / 6 % groupCount;
+                        return replace("/groups/g" + group + "/?/v", "id",
+                            FACTORY.numberNode(group));
+                    case 4:
+                        return replace("/items/?/v", "key", key(id));
+                    default:
+                        return replace("/items/?/key", "id",
+                            FACTORY.numberNode(id)).set("value", key(id));
+                }
+            }
+        };
+
+        final JsonNode patched = JsonPatch.applyStream(
+            new AbstractIterator<JsonPatchOperation>()
+            {
+                @Override
+                protected JsonPatchOperation computeNext()
+                {
+                    if (!operations.hasNext())
+                        return endOfData();
+                    try {
+                        return JacksonUtils.getReader()
+                            .withType(JsonPatchOperation.class)
+                            .readValue(operations.next());
+                    } catch (IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            }, node, true, cache);
+
+        assertEquals(patched.get("items").size(), itemCount);
+        assertEquals(patched.get("items").get(0).get("id").intValue(),
+            operationCount / 6);
+        assertTrue(statistics.getEvictions() > 0L);
+        assertTrue(statistics.getLocatorHits() > 0L);
+    }
+
+    private static ObjectNode element(final Random random)
+    {
+        final ObjectNode ret = FACTORY.objectNode();
+        ret.put("a", random.nextInt(10));
+        if (random.nextBoolean())
+            ret.put("b", random.nextBoolean() ? "x" : "y");
+        return ret;
+    }
+
+    private static ObjectNode item(final int id)
+    {
+        final ObjectNode ret = FACTORY.objectNode();
+        ret.put("id", id);
+        ret.put("v", 0);
+        ret.set("key", key(id));
+        return ret;
+    }
+
+    private static ObjectNode key(final int id)
+    {
+        final ObjectNode ret = FACTORY.objectNode();
+        ret.putArray("n").add(id);
+        return ret;
+    }
+
+    private static ObjectNode replace(final String path, final String name,
+        final JsonNode value)
+    {
+        final ObjectNode ret = FACTORY.objectNode();
+        ret.put("op", "replace");
+        ret.put("path", path);
+        ret.put("value", 1);
+        ret.putObject("value_locator").set(name, value);
+        return ret;
+    }
+
+    private static int scan(final ArrayNode array, final JsonNode locator)
+    {
+        JsonNode element;
+        boolean matches;
+
+        for (int i = 0; i < array.size(); i++) {
+            element = array.get(i);
+            matches = true;
+            for (final String name: Lists.newArrayList(locator.fieldNames()))
+                matches &= locator.get(name).equals(element.get(name));
+            if (matches)
+                return i;
+        }
+        return -1;
+    }
+
+    private static JsonNode locator(final String input)
+        throws IOException
+    {
+        return JsonLoader.fromString(input);
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.jackson.JsonLoader;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+
+import static org.testng.Assert.*;
+
+public final class UndoJournalTest
+{
+    private static final JsonNodeFactory FACTORY = JacksonUtils.nodeFactory();
+
+    @Test
+    public void rollbackRestoresMembersInTheirOriginalOrder()
+        throws IOException
+    {
+        final ObjectNode node = (ObjectNode) JsonLoader.fromString(
+            "{\"a\":1,\"b\":[1,2,3],\"c\":{\"d\":true}}");
+        final String orig = node.toString();
+        final UndoJournal journal = new UndoJournal();
+
+        journal.remove(node, "a");
+        journal.put(node, "c", FACTORY.textNode("x"));
+        journal.put(node, "e", FACTORY.nullNode());
+        journal.remove(node, "b");
+        journal.rollback();
+
+        assertEquals(node.toString(), orig);
+    }
+
+    @Test
+    public void rollbackRestoresObjectsWithManyRemovedMembers()
+    {
+        final ObjectNode node = FACTORY.objectNode();
+        for (int i = 0; i < 100; i++)
+            node.put("m" + i, i);
+        final String orig = node.toString();
+        final UndoJournal journal = new UndoJournal();
+
+        journal.put(node, "added", FACTORY.nullNode());
+        for (int i = 0; i < 100; i += 3)
+            journal.remove(node, "m" + i);
+        journal.put(node, "m1", FACTORY.textNode("x"));
+        journal.remove(node, "added");
+        journal.remove(node, "m1");
+        journal.rollback();
+
+        assertEquals(node.toString(), orig);
+    }
+
+    @Test
+    public void rollbackRestoresArrayElements()
+        throws IOException
+    {
+        final ObjectNode node = (ObjectNode) JsonLoader.fromString(
+            "{\"a\":[0,1,2,3]}");
+        final String orig = node.toString();
+        final ArrayNode array = (ArrayNode) node.get("a");
+        final UndoJournal journal = new UndoJournal();
+
+        journal.remove(array, 0);
+        journal.insert(array, 2, FACTORY.numberNode(42));
+        journal.set(array, 0, FACTORY.textNode("x"));
+        journal.add(array, FACTORY.booleanNode(false));
+        journal.remove(array, 3);
+        journal.rollback();
+
+        assertEquals(node.toString(), orig);
+    }
+
+    @Test
+    public void failedPatchLeavesInputUntouched()
+        throws IOException
+    {
+        final JsonNode node = JsonLoader.fromString(
+            "{\"a\":{\"b\":[1,2]},\"c\":\"d\",\"e\":null}");
+        final String orig = node.toString();
+        final JsonPatch patch = JsonPatch.fromJson(JsonLoader.fromString(
+            "[{\"op\":\"remove\",\"path\":\"/c\"},"
+            + "{\"op\":\"move\",\"from\":\"/a/b/0\",\"path\":\"/f\"},"
+            + "{\"op\":\"replace\",\"path\":\"/e\",\"value\":{}},"
+            + "{\"op\":\"test\",\"path\":\"/a/b\",\"value\":[1,2]}]"));
+
+        try {
+            patch.applyTransactionally(node);
+            fail("No exception thrown!!");
+        } catch (JsonPatchException ignored) {
+            assertEquals(node.toString(), orig);
+        }
+    }
+}
@@ -19,7 +19,12 @@
 
 package com.github.fge.jsonpatch.diff;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.fge.jackson.JacksonUtils;
 import com.github.fge.jackson.JsonLoader;
 import com.github.fge.jackson.JsonNumEquals;
 import com.github.fge.jackson.jsonpointer.JsonPointerException;
@@ -32,8 +37,11 @@ import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 import java.io.IOException;
+import java.io.StringWriter;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -110,4 +118,167 @@ public final class JsonDiffTest
             + "expected: %s\nactual: %s\n", message, expected, actual
         ).isTrue();
     }
+
+    @Test(dataProvider = "getPatchesOnly")
+    public void writtenPatchIsTheSameAsTheGeneratedNode(final JsonNode first,
+        final JsonNode second)
+        throws IOException
+    {
+        final StringWriter writer = new StringWriter();
+        final JsonGenerator generator = new JsonFactory()
+            .createGenerator(writer);
+
+        JsonDiff.writeTo(generator, first, second);
+        generator.close();
+
+        assertThat(JsonLoader.fromString(writer.toString()))
+            .isEqualTo(JsonDiff.asJson(first, second));
+    }
+
+    @Test(dataProvider = "getPatchesOnly")
+    public void generatedLcsPatchAppliesCleanly(final JsonNode first,
+        final JsonNode second)
+        throws JsonPatchException
+    {
+        final JsonPatch patch
+            = JsonDiff.asJsonPatchUsing(first, second, ArrayDiffStrategy.LCS);
+        final Predicate<JsonNode> predicate = EQUIVALENCE.equivalentTo(second);
+        final JsonNode actual = patch.apply(first);
+
+        assertThat(predicate.apply(actual)).overridingErrorMessage(
+            "Generated patch failed to apply\nexpected: %s\nactual: %s",
+            second, actual
+        ).isTrue();
+    }
+
+    @Test
+    public void lcsPatchOnlyAddsAndRemovesWhatChanged()
+        throws IOException
+    {
+        final ArrayNode first = JacksonUtils.nodeFactory().arrayNode();
+        for (int i = 0; i < 10000; i++)
+            first.add(i);
+        final ArrayNode second = first.deepCopy();
+        second.insert(0, "start");
+        second.remove(5001);
+        second.insert(9000, "middle");
+
+        final JsonNode actual
+            = JsonDiff.asJsonUsing(first, second, ArrayDiffStrategy.LCS);
+        final JsonNode expected = JsonLoader.fromString("["
+            + "{\"op\":\"add\",\"path\":\"/0\",\"value\":\"start\"},"
+            + "{\"op\":\"remove\",\"path\":\"/5001\"},"
+            + "{\"op\":\"add\",\"path\":\"/9000\",\"value\":\"middle\"}"
+            + "]");
+
+        assertThat(actual).isEqualTo(expected);
+    }
+
+    @DataProvider
+    public Iterator<Object[]> getLcsRoundTrips()
+        throws IOException
+    {
+        final List<Object[]> list = Lists.newArrayList();
+
+        /*
+         * Duplicates in the source, removed or kept, or added values which
+         * are not in the array yet
+         */
+        final String[][] pairs = {
+            { "[\"x\",\"x\",\"y\"]", "[\"x\",\"x\",\"y\",\"z\"]" },
+            { "[\"x\",\"y\",\"x\",\"y\"]", "[\"x\",\"x\"]" },
+            { "[\"x\",\"y\",\"x\"]", "[\"y\"]" },
+            { "[1,1,2,2]", "[1,\"a\",1,2,\"b\",2]" },
+            { "[[1],[1],{\"a\":1}]", "[[1],{\"a\":2},[1]]" }
+        };
+        for (final String[] pair: pairs)
+            list.add(new Object[] {
+                JsonLoader.fromString(pair[0]), JsonLoader.fromString(pair[1])
+            });
+
+        final Random random = new Random(0L);
+        ArrayNode first, second;
+        int fresh;
+        for (int i = 0; i < 500; i++) {
+            first = JacksonUtils.nodeFactory().arrayNode();
+            second = JacksonUtils.nodeFactory().arrayNode();
+            for (int j = random.nextInt(10); j > 0; j--)
+                first.add(random.nextInt(3));
+            fresh = 100;
+            for (final JsonNode element: first) {
+                if (random.nextInt(3) == 0)
+                    second.add(fresh++);
+                if (random.nextInt(3) != 0)
+                    second.add(element);
+            }
+            if (random.nextBoolean())
+                second.add(fresh);
+            list.add(new Object[] { first, second });
+        }
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "getLcsRoundTrips")
+    public void lcsPatchGivesBackTheTarget(final JsonNode first,
+        final JsonNode second)
+        throws JsonPatchException
+    {
+        final JsonPatch patch
+            = JsonDiff.asJsonPatchUsing(first, second, ArrayDiffStrategy.LCS);
+
+        assertThat(patch.apply(first)).isEqualTo(second);
+    }
+
+    @Test
+    public void lcsPatchAddingAnElementAlreadyInTheArrayDoesNotRoundTrip()
+        throws IOException, JsonPatchException
+    {
+        final JsonNode first = JsonLoader.fromString("[\"x\",\"y\"]");
+        final JsonNode second = JsonLoader.fromString("[\"y\",\"x\",\"y\"]");
+        final JsonPatch patch
+            = JsonDiff.asJsonPatchUsing(first, second, ArrayDiffStrategy.LCS);
+
+        assertThat(JsonDiff.asJsonUsing(first, second, ArrayDiffStrategy.LCS))
+            .isEqualTo(JsonLoader.fromString(
+                "[{\"op\":\"add\",\"path\":\"/0\",\"value\":\"y\"}]"));
+        assertThat(patch.apply(first)).isEqualTo(first);
+    }
+
+    @Test
+    public void parallelDiffIsTheSameAsSequentialDiff()
+    {
+        final ObjectNode first = JacksonUtils.nodeFactory().objectNode();
+        final ObjectNode second = JacksonUtils.nodeFactory().objectNode();
+
+        /*
+         * Values moved or copied from one section to another end up being
+         * diffed by different tasks
+         */
+        ObjectNode section;
+        for (int i = 0; i < 2000; i++) {
+            section = first.putObject("section" + i);
+            section.put("id", i);
+            section.putArray("values").add(i).add(i % 7).add("x" + i % 11);
+            section = second.putObject("section" + i);
+            section.put("id", i % 3 == 0 ? i + 1 : i);
+            section.putArray("values").add(i % 7).add(i).add("x" + i % 13);
+            if (i % 5 == 0)
+                section.putObject("moved").put("from", (i + 501) % 2000);
+            else
+                first.with("section" + i).putObject("moved")
+                    .put("from", i);
+        }
+
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (final ArrayDiffStrategy strategy: ArrayDiffStrategy.values())
+                assertThat(JsonDiff.asJsonPatchInParallel(first, second,
+                    strategy, pool).toString()).isEqualTo(
+                    JsonDiff.asJsonPatchUsing(first, second, strategy)
+                        .toString());
+        } finally {
+            pool.shutdown();
+        }
+    }
 }
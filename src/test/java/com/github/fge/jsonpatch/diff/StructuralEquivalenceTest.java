@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch.diff;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jackson.JsonLoader;
+import com.google.common.collect.Lists;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.testng.Assert.*;
+
+public final class StructuralEquivalenceTest
+{
+    @DataProvider
+    public Iterator<Object[]> getEquivalentNodes()
+        throws IOException
+    {
+        final List<Object[]> list = Lists.newArrayList();
+
+        list.add(new Object[] { "1", "1.0" });
+        list.add(new Object[] { "[1, 2.50]", "[1.0, 2.5]" });
+        list.add(new Object[] { "{\"a\": 1, \"b\": [true]}",
+            "{\"b\": [true], \"a\": 1.0}" });
+        list.add(new Object[] { "{\"a\": {\"x\": null, \"y\": \"z\"}}",
+            "{\"a\": {\"y\": \"z\", \"x\": null}}" });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "getEquivalentNodes")
+    public void equivalentNodesHaveTheSameHash(final String first,
+        final String second)
+        throws IOException
+    {
+        final StructuralEquivalence equivalence = new StructuralEquivalence();
+        final JsonNode a = JsonLoader.fromString(first);
+        final JsonNode b = JsonLoader.fromString(second);
+
+        assertTrue(equivalence.equivalent(a, b));
+        assertEquals(equivalence.hash(a), equivalence.hash(b));
+    }
+
+    @Test
+    public void differentNodesAreNotEquivalent()
+        throws IOException
+    {
+        final StructuralEquivalence equivalence = new StructuralEquivalence();
+        final JsonNode a = JsonLoader.fromString("{\"a\": [1, 2]}");
+        final JsonNode b = JsonLoader.fromString("{\"a\": [2, 1]}");
+
+        assertFalse(equivalence.equivalent(a, b));
+    }
+}
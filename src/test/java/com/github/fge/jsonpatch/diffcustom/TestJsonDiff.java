@@ -13,6 +13,9 @@ import org.testng.annotations.Test;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.github.fge.jackson.jsonpointer.JsonPointer;
 import com.github.fge.jackson.jsonpointer.JsonPointerException;
 import com.github.fge.jsonpatch.JsonDiffException;
@@ -180,4 +183,73 @@ public class TestJsonDiff {
 
 	}
 
+	@Test(testName = "Unchanged members of keyed elements are copied from")
+	public void unchangedMembersOfKeyedElementsAreCopied() throws JsonDiffException, IOException {
+		final Map<JsonPointer, String> keyFields = new HashMap<JsonPointer, String>();
+		keyFields.put(JsonPointer.of("list"), "id");
+		final JsonNode beforeNode = objectMapper.readTree(
+				"{\"list\":[{\"id\":\"a\",\"v\":\"hello\"}],\"o\":{\"k\":1}}");
+		final JsonNode afterNode = objectMapper.readTree(
+				"{\"list\":[{\"id\":\"a\",\"v\":\"hello\",\"w\":2}],\"o\":{\"k\":1,\"y\":\"hello\"}}");
+
+		final JsonNode patch = JsonDiff.asJson(beforeNode, afterNode, keyFields);
+
+		Assert.assertEquals(patch.size(), 2);
+		Assert.assertEquals(patch.get(1), objectMapper.readTree(
+				"{\"op\":\"copy\",\"path\":\"/o/y\",\"from\":\"/list/0/v\"}"));
+	}
+
+	@Test(testName = "Keyed arrays with removed, modified and added elements")
+	public void largeKeyedArrays() throws JsonDiffException, JsonPointerException {
+		final int size = 2000;
+		final int removed = 100;
+		final Map<JsonPointer, String> keyFields = new HashMap<JsonPointer, String>();
+		keyFields.put(new JsonPointer("/list"), "id");
+
+		final JsonNodeFactory factory = JsonNodeFactory.instance;
+		final ObjectNode beforeNode = factory.objectNode();
+		final ObjectNode afterNode = factory.objectNode();
+		final ArrayNode before = beforeNode.putArray("list");
+		final ArrayNode after = afterNode.putArray("list");
+
+		for (int i = 0; i < size; i++) {
+			before.addObject().put("id", "k" + i).put("v", i);
+			// every tenth element is modified
+			if (i >= removed)
+				after.addObject().put("id", "k" + i).put("v", i % 10 == 0 ? -i : i);
+		}
+		for (int i = size; i < size + removed; i++)
+			after.addObject().put("id", "k" + i).put("v", i);
+
+		final JsonNode patch = JsonDiff.asJson(beforeNode, afterNode, keyFields);
+
+		// removals, then replacements, then additions
+		Assert.assertEquals(patch.size(), removed + (size - removed) / 10 + removed);
+		Assert.assertEquals(patch.get(0).get("op").textValue(), "remove");
+		Assert.assertEquals(patch.get(patch.size() - 1).get("op").textValue(), "add");
+	}
+
+	@Test(testName = "Arrays without key with replaced and shifted elements")
+	public void largeArraysWithoutKey() throws JsonDiffException {
+		final int size = 2000;
+		final int changed = 100;
+
+		final JsonNodeFactory factory = JsonNodeFactory.instance;
+		final ObjectNode beforeNode = factory.objectNode();
+		final ObjectNode afterNode = factory.objectNode();
+		final ArrayNode before = beforeNode.putArray("arr");
+		final ArrayNode after = afterNode.putArray("arr");
+
+		for (int i = 0; i < size; i++) {
+			before.addObject().put("n", i);
+			// the first elements are replaced, the others are shifted
+			after.addObject().put("n", i < changed ? -i - 1 : size - i + changed - 1);
+		}
+
+		final JsonNode patch = JsonDiff.asJson(beforeNode, afterNode, null);
+
+		Assert.assertEquals(patch.size(), 2 * changed);
+		Assert.assertEquals(patch.get(0).get("op").textValue(), "remove");
+		Assert.assertEquals(patch.get(patch.size() - 1).get("op").textValue(), "add");
+	}
 }
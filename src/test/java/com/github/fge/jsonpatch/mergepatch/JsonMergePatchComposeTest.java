@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+
+package com.github.fge.jsonpatch.mergepatch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jackson.JsonLoader;
+import com.github.fge.jackson.JsonNumEquals;
+import com.github.fge.jsonpatch.JsonPatchException;
+import com.github.fge.jsonpatch.JsonPatchMessages;
+import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+import com.google.common.base.Equivalence;
+import com.google.common.collect.Lists;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public final class JsonMergePatchComposeTest
+{
+    private static final Equivalence<JsonNode> EQUIVALENCE
+        = JsonNumEquals.getInstance();
+    private static final MessageBundle BUNDLE
+        = MessageBundles.getBundle(JsonPatchMessages.class);
+
+    private final List<JsonMergePatch> patches = Lists.newArrayList();
+    private final List<JsonNode> victims = Lists.newArrayList();
+
+    public JsonMergePatchComposeTest()
+        throws IOException, JsonPatchException
+    {
+        for (final String name: new String[] { "object", "nonobject" })
+            for (final JsonNode node: JsonLoader.fromResource(
+                "/jsonpatch/mergepatch/patch-" + name + ".json")) {
+                patches.add(JsonMergePatch.fromJson(node.get("patch")));
+                victims.add(node.get("victim"));
+            }
+        patches.add(JsonMergePatch.fromJson(JsonLoader.fromString(
+            "{\"a\":null,\"c\":{\"x\":1}}")));
+        patches.add(JsonMergePatch.fromJson(JsonLoader.fromString(
+            "{\"a\":{\"y\":[2]},\"c\":null,\"d\":{\"e\":{\"f\":true}}}")));
+        patches.add(JsonMergePatch.fromJson(JsonLoader.fromString(
+            "{\"a\":{\"z\":3},\"c\":{\"x\":2},\"d\":{\"e\":{\"g\":null}}}")));
+    }
+
+    @Test
+    public void composingNothingIsAnError()
+        throws JsonPatchException
+    {
+        try {
+            JsonMergePatch.compose();
+            fail("No exception thrown!");
+        } catch (IllegalArgumentException e) {
+            assertEquals(e.getMessage(),
+                BUNDLE.getMessage("mergePatch.noPatches"));
+        }
+    }
+
+    @DataProvider
+    public Iterator<Object[]> getSequences()
+    {
+        final List<Object[]> list = Lists.newArrayList();
+        final int size = patches.size();
+
+        for (int start = 0; start < size; start++)
+            for (int end = start + 1; end <= size; end++)
+                list.add(new Object[] { patches.subList(start, end) });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "getSequences")
+    public void composedPatchIsEquivalentToTheSequence(
+        final List<JsonMergePatch> sequence)
+        throws JsonPatchException
+    {
+        final JsonMergePatch composed = JsonMergePatch.compose(
+            sequence.toArray(new JsonMergePatch[sequence.size()]));
+
+        JsonNode expected;
+        for (final JsonNode victim: victims) {
+            expected = victim;
+            for (final JsonMergePatch patch: sequence)
+                expected = patch.apply(expected);
+            assertTrue(EQUIVALENCE.equivalent(composed.apply(victim),
+                expected));
+        }
+    }
+}
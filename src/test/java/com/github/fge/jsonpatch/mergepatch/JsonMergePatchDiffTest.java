@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+
+package com.github.fge.jsonpatch.mergepatch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.jackson.JsonLoader;
+import com.github.fge.jackson.JsonNumEquals;
+import com.github.fge.jsonpatch.JsonPatchException;
+import com.google.common.base.Equivalence;
+import com.google.common.collect.Lists;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public final class JsonMergePatchDiffTest
+{
+    private static final Equivalence<JsonNode> EQUIVALENCE
+        = JsonNumEquals.getInstance();
+
+    private final ObjectMapper mapper = JacksonUtils.newMapper();
+    private final JsonNode testData;
+
+    public JsonMergePatchDiffTest()
+        throws IOException
+    {
+        final String resource = "/jsonpatch/mergepatch/diff.json";
+        testData = JsonLoader.fromResource(resource);
+    }
+
+    @DataProvider
+    public Iterator<Object[]> getData()
+    {
+        final List<Object[]> list = Lists.newArrayList();
+
+        for (final JsonNode node: testData)
+            list.add(new Object[] {
+                node.get("source"), node.get("target"), node.get("patch")
+            });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "getData")
+    public void generatedPatchIsMinimal(final JsonNode source,
+        final JsonNode target, final JsonNode expected)
+        throws IOException
+    {
+        final JsonMergePatch patch = JsonMergePatch.diff(source, target);
+        final JsonNode actual
+            = mapper.readTree(mapper.writeValueAsString(patch));
+
+        assertTrue(EQUIVALENCE.equivalent(actual, expected),
+            "expected " + expected + " but got " + actual);
+    }
+
+    @Test(dataProvider = "getData")
+    public void generatedPatchYieldsTheTarget(final JsonNode source,
+        final JsonNode target, final JsonNode expected)
+        throws IOException, JsonPatchException
+    {
+        final String orig = source.toString();
+        final JsonMergePatch patch = JsonMergePatch.diff(source, target);
+        final JsonMergePatch deserialized = mapper.readValue(
+            mapper.writeValueAsString(patch), JsonMergePatch.class);
+
+        assertTrue(EQUIVALENCE.equivalent(patch.apply(source), target));
+        assertTrue(EQUIVALENCE.equivalent(deserialized.apply(source), target));
+        assertEquals(source.toString(), orig);
+    }
+
+    @Test
+    public void nullMembersOfTheTargetAreRemoved()
+        throws IOException, JsonPatchException
+    {
+        final JsonNode source = JsonLoader.fromString("{\"a\":1,\"b\":2}");
+        final JsonNode target = JsonLoader.fromString("{\"a\":null,\"c\":null}");
+        final JsonMergePatch patch = JsonMergePatch.diff(source, target);
+
+        assertEquals(patch.apply(source), JsonLoader.fromString("{}"));
+    }
+}
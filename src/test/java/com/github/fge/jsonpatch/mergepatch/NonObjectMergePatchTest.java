@@ -19,8 +19,10 @@
 
 package com.github.fge.jsonpatch.mergepatch;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.github.fge.jackson.JacksonUtils;
 import com.github.fge.jackson.JsonLoader;
 import com.github.fge.jackson.JsonNumEquals;
 import com.github.fge.jsonpatch.JsonPatchException;
@@ -33,6 +35,7 @@ import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 import java.io.IOException;
+import java.io.StringWriter;
 import java.util.Iterator;
 import java.util.List;
 
@@ -91,4 +94,20 @@ public final class NonObjectMergePatchTest
 
         assertTrue(EQUIVALENCE.equivalent(input, patched));
     }
+
+    @Test(dataProvider = "getData")
+    public void streamedPatchingWorksAsExpected(final JsonNode input,
+        final JsonNode victim)
+        throws IOException, JsonPatchException
+    {
+        final JsonMergePatch patch = JsonMergePatch.fromJson(input);
+        final StringWriter writer = new StringWriter();
+        final JsonGenerator generator = JacksonUtils.getReader().getFactory()
+            .createGenerator(writer);
+        patch.apply(victim.traverse(), generator);
+        final JsonNode patched = JacksonUtils.getReader()
+            .readTree(writer.toString());
+
+        assertTrue(EQUIVALENCE.equivalent(input, patched));
+    }
 }
@@ -19,8 +19,10 @@
 
 package com.github.fge.jsonpatch.mergepatch;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.github.fge.jackson.JacksonUtils;
 import com.github.fge.jackson.JsonLoader;
 import com.github.fge.jackson.JsonNumEquals;
 import com.github.fge.jsonpatch.JsonPatchException;
@@ -33,10 +35,12 @@ import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 import java.io.IOException;
+import java.io.StringWriter;
 import java.util.Iterator;
 import java.util.List;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
@@ -93,4 +97,45 @@ public final class ObjectMergePatchTest
 
         assertTrue(EQUIVALENCE.equivalent(result, patched));
     }
+
+    @Test(dataProvider = "getData")
+    public void streamedPatchingWorksAsExpected(final JsonNode input,
+        final JsonNode victim, final JsonNode result)
+        throws IOException, JsonPatchException
+    {
+        final JsonMergePatch patch = JsonMergePatch.fromJson(input);
+        final StringWriter writer = new StringWriter();
+        final JsonGenerator generator = JacksonUtils.getReader().getFactory()
+            .createGenerator(writer);
+        patch.apply(victim.traverse(), generator);
+        final JsonNode patched = JacksonUtils.getReader()
+            .readTree(writer.toString());
+
+        assertTrue(EQUIVALENCE.equivalent(result, patched));
+        assertEquals(Lists.newArrayList(patched.fieldNames()),
+            Lists.newArrayList(patch.apply(victim).fieldNames()));
+    }
+
+    @Test(dataProvider = "getData")
+    public void copyOnWritePatchingSharesUntouchedMembers(
+        final JsonNode input, final JsonNode victim, final JsonNode result)
+        throws JsonPatchException
+    {
+        final String orig = victim.toString();
+        final JsonMergePatch patch = JsonMergePatch.fromJson(input);
+        final JsonNode patched = patch.applyCopyOnWrite(victim);
+
+        assertTrue(EQUIVALENCE.equivalent(result, patched));
+        assertEquals(victim.toString(), orig);
+        assertEquals(Lists.newArrayList(patched.fieldNames()),
+            Lists.newArrayList(patch.apply(victim).fieldNames()));
+
+        final Iterator<String> names = patched.fieldNames();
+        String name;
+        while (names.hasNext()) {
+            name = names.next();
+            if (!input.has(name) && victim.has(name))
+                assertSame(patched.get(name), victim.get(name));
+        }
+    }
 }
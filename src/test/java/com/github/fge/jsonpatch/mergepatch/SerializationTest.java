@@ -110,4 +110,43 @@ public final class SerializationTest
 
         assertTrue(EQUIVALENCE.equivalent(input, serialized));
     }
+
+    @Test
+    public void lastOfDuplicateMembersWins()
+        throws IOException
+    {
+        final String in = "{\"a\":1,\"b\":{\"c\":null},\"a\":null,"
+            + "\"b\":null,\"b\":{\"d\":[true]}}";
+        final JsonMergePatch deserialized
+            = mapper.readValue(in, JsonMergePatch.class);
+        final JsonNode expected = JacksonUtils.getReader().readTree(in);
+
+        final String out = mapper.writeValueAsString(deserialized);
+        final JsonNode serialized = JacksonUtils.getReader().readTree(out);
+
+        assertTrue(EQUIVALENCE.equivalent(expected, serialized));
+    }
+
+    @Test
+    public void deeplyNestedPatchesAreRead()
+        throws IOException
+    {
+        final int depth = 1000;
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < depth; i++)
+            sb.append("{\"a\":");
+        sb.append("[1,{\"b\":null}]");
+        for (int i = 0; i < depth; i++)
+            sb.append(",\"r\":null}");
+        final String in = sb.toString();
+
+        final JsonMergePatch deserialized
+            = mapper.readValue(in, JsonMergePatch.class);
+
+        final String out = mapper.writeValueAsString(deserialized);
+        final JsonNode serialized = JacksonUtils.getReader().readTree(out);
+
+        assertTrue(EQUIVALENCE.equivalent(
+            JacksonUtils.getReader().readTree(in), serialized));
+    }
 }
@@ -0,0 +1,127 @@
+package com.github.fge.jsonpatch.patchcustom;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+import com.github.fge.jsonpatch.JsonPatch;
+import com.github.fge.jsonpatch.JsonPatchException;
+import com.github.fge.jsonpatch.JsonPatchOperation;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+
+/**
+ * Operations defined outside of the library, with a value_locator
+ */
+public class TestExternalOperations {
+	private ObjectMapper objectMapper = new ObjectMapper();
+
+	@Test
+	public void testExternalOperationWithValueLocator() throws IOException, JsonPatchException {
+		JsonNode originalData = objectMapper
+				.readTree("{\"users\":[{\"id\":\"a\",\"name\":\"x\"},{\"id\":\"b\",\"name\":\"y\"}]}");
+		JsonPatchOperation operation = new UpperCaseOperation(JsonPointer.of("users", "?", "name"),
+				objectMapper.readTree("{\"id\":\"b\"}"));
+		JsonPatch patch = new JsonPatch(Collections.singletonList(operation));
+
+		JsonNode patched = patch.apply(originalData, true);
+
+		Assert.assertEquals(patched,
+				objectMapper.readTree("{\"users\":[{\"id\":\"a\",\"name\":\"x\"},{\"id\":\"b\",\"name\":\"Y\"}]}"));
+		Assert.assertEquals(operation.getPath(), JsonPointer.of("users", "?", "name"));
+	}
+
+	/*
+	 * The element is at a different index in each document: a thread must
+	 * never see the path resolved by another
+	 */
+	@Test
+	public void testExternalOperationSharedBetweenThreads() throws Exception {
+		final JsonNode first = objectMapper
+				.readTree("{\"users\":[{\"id\":\"a\",\"name\":\"x\"},{\"id\":\"b\",\"name\":\"y\"}]}");
+		final JsonNode second = objectMapper.readTree(
+				"{\"users\":[{\"id\":\"b\",\"name\":\"y\"},{\"id\":\"c\",\"name\":\"z\"},{\"id\":\"a\",\"name\":\"x\"}]}");
+		final JsonNode firstExpected = objectMapper
+				.readTree("{\"users\":[{\"id\":\"a\",\"name\":\"x\"},{\"id\":\"b\",\"name\":\"Y\"}]}");
+		final JsonNode secondExpected = objectMapper.readTree(
+				"{\"users\":[{\"id\":\"b\",\"name\":\"Y\"},{\"id\":\"c\",\"name\":\"z\"},{\"id\":\"a\",\"name\":\"x\"}]}");
+		final JsonPatchOperation operation = new UpperCaseOperation(JsonPointer.of("users", "?", "name"),
+				objectMapper.readTree("{\"id\":\"b\"}"));
+		final JsonPatch patch = new JsonPatch(Collections.singletonList(operation));
+
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		final List<Future<Void>> futures = Lists.newArrayList();
+		try {
+			for (int i = 0; i < 8; i++) {
+				final boolean even = i % 2 == 0;
+				futures.add(executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws JsonPatchException {
+						for (int round = 0; round < 2000; round++)
+							if (even)
+								Assert.assertEquals(patch.apply(first, true), firstExpected);
+							else
+								Assert.assertEquals(patch.apply(second, true), secondExpected);
+						return null;
+					}
+				}));
+			}
+			for (final Future<Void> future : futures)
+				future.get();
+		} finally {
+			executor.shutdown();
+		}
+		Assert.assertEquals(operation.getPath(), JsonPointer.of("users", "?", "name"));
+	}
+
+	/*
+	 * Upper cases the text value of an object member
+	 */
+	private static final class UpperCaseOperation extends JsonPatchOperation {
+		private UpperCaseOperation(final JsonPointer path, final JsonNode valueLocator) {
+			super("uppercase", path, valueLocator);
+		}
+
+		@Override
+		public JsonNode apply(final JsonNode node) throws JsonPatchException {
+			final JsonNode ret = node.deepCopy();
+			final ObjectNode parent = (ObjectNode) path.parent().get(ret);
+			final String name = Iterables.getLast(path).getToken().getRaw();
+			parent.put(name, parent.get(name).textValue().toUpperCase());
+			return ret;
+		}
+
+		@Override
+		public void serialize(final JsonGenerator jgen, final SerializerProvider provider) throws IOException {
+			jgen.writeStartObject();
+			jgen.writeStringField("op", op);
+			jgen.writeStringField("path", path.toString());
+			jgen.writeEndObject();
+		}
+
+		@Override
+		public void serializeWithType(final JsonGenerator jgen, final SerializerProvider provider,
+				final TypeSerializer typeSer) throws IOException {
+			serialize(jgen, provider);
+		}
+
+		@Override
+		public String toString() {
+			return "op: " + op + "; path: \"" + path + '"';
+		}
+	}
+}
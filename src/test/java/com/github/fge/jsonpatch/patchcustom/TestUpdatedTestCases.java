@@ -1,7 +1,13 @@
 package com.github.fge.jsonpatch.patchcustom;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,6 +19,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.fge.jsonpatch.JsonPatch;
 import com.github.fge.jsonpatch.JsonPatchException;
+import com.google.common.collect.Lists;
 
 public class TestUpdatedTestCases {
 	
@@ -53,5 +60,46 @@ public class TestUpdatedTestCases {
 
 	}
 
+	@Test
+	public void testConcurrentApplication() throws Exception {
+		final JsonNode originalData = objectMapper
+				.readTree(new File("src/test/resources/jsonpatch/patchcustom/MultiData.json"));
+		final JsonPatch multiPatch = JsonPatch.fromJson(objectMapper
+				.readTree(new File("src/test/resources/jsonpatch/patchcustom/MultiOperations.json")));
+		final JsonNode expectedOutput = objectMapper
+				.readTree(new File("src/test/resources/jsonpatch/patchcustom/expected/expectedMulti.json"));
+		final String operations = multiPatch.toString();
+
+		final ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			final List<Future<JsonNode>> results = Lists.newArrayList();
+			for (int i = 0; i < 200; i++)
+				results.add(executor.submit(new Callable<JsonNode>() {
+					@Override
+					public JsonNode call() throws JsonPatchException {
+						return multiPatch.apply(originalData, false);
+					}
+				}));
+			for (final Future<JsonNode> result : results)
+				Assert.assertEquals(result.get().toString(), expectedOutput.toString());
+		} finally {
+			executor.shutdown();
+		}
+		// locator based paths are resolved without touching the operations
+		Assert.assertEquals(multiPatch.toString(), operations);
+	}
+
+	@Test
+	public void testMultipleChangesFromStream() throws IOException, JsonPatchException {
+		JsonNode originalData = objectMapper
+				.readTree(new File("src/test/resources/jsonpatch/patchcustom/MultiData.json"));
+
+		patch = JsonPatch.fromStream(new FileInputStream("src/test/resources/jsonpatch/patchcustom/MultiOperations.json"));
+		patched = patch.apply(originalData, false);
 
+		JsonNode expectedOutput = objectMapper
+				.readTree(new File("src/test/resources/jsonpatch/patchcustom/expected/expectedMulti.json"));
+
+		this.evaluatePatch(patched, expectedOutput);
+	}
 }
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+
+package com.github.fge.jsonpatch.workload;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * The shape of a generated document
+ *
+ * <p>A document is an object; it has {@code width} scalar members, a member
+ * named {@code records} which is an array of {@code arrayLength} records, and,
+ * if {@code depth} is greater than one, a member named {@code child} which is
+ * a document of depth {@code depth - 1}. Text values are {@code stringLength}
+ * characters long.</p>
+ *
+ * <p>Records are small objects; if the shape is keyed, each of them has a
+ * unique {@link WorkloadGenerator#KEY} member.</p>
+ *
+ * <p>Instances are immutable; {@code with*()} methods return a new
+ * instance.</p>
+ */
+public final class DocumentShape
+{
+    /**
+     * A shape with a few of everything
+     */
+    public static final DocumentShape DEFAULT
+        = new DocumentShape(8, 3, 16, 16, true);
+
+    private final int width;
+    private final int depth;
+    private final int arrayLength;
+    private final int stringLength;
+    private final boolean keyed;
+
+    private DocumentShape(final int width, final int depth,
+        final int arrayLength, final int stringLength, final boolean keyed)
+    {
+        Preconditions.checkArgument(width >= 0, "width must be positive");
+        Preconditions.checkArgument(depth >= 1, "depth must be at least 1");
+        Preconditions.checkArgument(arrayLength >= 0,
+            "array length must be positive");
+        Preconditions.checkArgument(stringLength >= 0,
+            "string length must be positive");
+        this.width = width;
+        this.depth = depth;
+        this.arrayLength = arrayLength;
+        this.stringLength = stringLength;
+        this.keyed = keyed;
+    }
+
+    /**
+     * Wide objects: many scalar members, no nesting
+     *
+     * @return a shape
+     */
+    public static DocumentShape wide()
+    {
+        return new DocumentShape(1024, 1, 4, 16, true);
+    }
+
+    /**
+     * Deep nesting: few members per level
+     *
+     * @return a shape
+     */
+    public static DocumentShape deep()
+    {
+        return new DocumentShape(4, 128, 2, 16, true);
+    }
+
+    /**
+     * Large arrays of keyed records
+     *
+     * @return a shape
+     */
+    public static DocumentShape keyedArrays()
+    {
+        return new DocumentShape(4, 1, 4096, 16, true);
+    }
+
+    /**
+     * Long text values
+     *
+     * @return a shape
+     */
+    public static DocumentShape longStrings()
+    {
+        return new DocumentShape(16, 2, 4, 4096, true);
+    }
+
+    public DocumentShape withWidth(final int width)
+    {
+        return new DocumentShape(width, depth, arrayLength, stringLength,
+            keyed);
+    }
+
+    public DocumentShape withDepth(final int depth)
+    {
+        return new DocumentShape(width, depth, arrayLength, stringLength,
+            keyed);
+    }
+
+    public DocumentShape withArrayLength(final int arrayLength)
+    {
+        return new DocumentShape(width, depth, arrayLength, stringLength,
+            keyed);
+    }
+
+    public DocumentShape withStringLength(final int stringLength)
+    {
+        return new DocumentShape(width, depth, arrayLength, stringLength,
+            keyed);
+    }
+
+    public DocumentShape withKeyed(final boolean keyed)
+    {
+        return new DocumentShape(width, depth, arrayLength, stringLength,
+            keyed);
+    }
+
+    public int getWidth()
+    {
+        return width;
+    }
+
+    public int getDepth()
+    {
+        return depth;
+    }
+
+    public int getArrayLength()
+    {
+        return arrayLength;
+    }
+
+    public int getStringLength()
+    {
+        return stringLength;
+    }
+
+    public boolean isKeyed()
+    {
+        return keyed;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "width=" + width + ", depth=" + depth + ", arrayLength="
+            + arrayLength + ", stringLength=" + stringLength + ", keyed="
+            + keyed;
+    }
+}
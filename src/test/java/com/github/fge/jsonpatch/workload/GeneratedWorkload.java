@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+
+package com.github.fge.jsonpatch.workload;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+import com.github.fge.jsonpatch.JsonPatch;
+
+import java.util.Map;
+
+/**
+ * A source document, a mutated version of it, and the patch between the two
+ *
+ * @see WorkloadGenerator
+ */
+public final class GeneratedWorkload
+{
+    private final JsonNode source;
+    private final JsonNode target;
+    private final JsonPatch patch;
+    private final Map<JsonPointer, String> keyFields;
+
+    GeneratedWorkload(final JsonNode source, final JsonNode target,
+        final JsonPatch patch, final Map<JsonPointer, String> keyFields)
+    {
+        this.source = source;
+        this.target = target;
+        this.patch = patch;
+        this.keyFields = keyFields;
+    }
+
+    public JsonNode getSource()
+    {
+        return source;
+    }
+
+    public JsonNode getTarget()
+    {
+        return target;
+    }
+
+    /**
+     * Return the patch turning the source into the target
+     *
+     * <p>This patch is built along with the target, not generated by {@link
+     * com.github.fge.jsonpatch.diff.JsonDiff}; it only uses add, remove and
+     * replace operations.</p>
+     *
+     * @return the patch
+     */
+    public JsonPatch getPatch()
+    {
+        return patch;
+    }
+
+    /**
+     * Return the keys of arrays of keyed records, in the form expected by
+     * {@link com.github.fge.jsonpatch.diff.JsonDiff#asJsonPatch(JsonNode,
+     * JsonNode, Map)}
+     *
+     * @return the keys; empty if the documents are not keyed
+     */
+    public Map<JsonPointer, String> getKeyFields()
+    {
+        return keyFields;
+    }
+}
@@ -0,0 +1,387 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+
+package com.github.fge.jsonpatch.workload;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+import com.github.fge.jsonpatch.AddOperation;
+import com.github.fge.jsonpatch.JsonPatch;
+import com.github.fge.jsonpatch.JsonPatchOperation;
+import com.github.fge.jsonpatch.RemoveOperation;
+import com.github.fge.jsonpatch.ReplaceOperation;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * A deterministic generator of documents, mutated versions of them, and
+ * patches
+ *
+ * <p>All values are drawn from a {@link Random} seeded at construction time:
+ * two generators built with the same seed, and called the same way, generate
+ * the same documents. This allows benchmarks and tests to use inputs of any
+ * size, reproducibly, without storing them.</p>
+ *
+ * <p>Documents have a {@link DocumentShape}; larger documents are made of
+ * several sections of that shape, so that the size of a document can be chosen
+ * independently of its shape.</p>
+ *
+ * <p>Instances are not thread safe.</p>
+ */
+public final class WorkloadGenerator
+{
+    /**
+     * Name of the key member of records
+     */
+    public static final String KEY = "id";
+
+    private static final JsonNodeFactory FACTORY = JacksonUtils.nodeFactory();
+    private static final char[] ALPHABET
+        = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789 "
+        .toCharArray();
+
+    private final Random random;
+    private int nextId = 0;
+    private int nextMember = 0;
+
+    /*
+     * Approximate size of the serialized values generated so far
+     */
+    private long bytes;
+
+    public WorkloadGenerator(final long seed)
+    {
+        random = new Random(seed);
+    }
+
+    /**
+     * Generate a document of the given shape
+     *
+     * @param shape the shape
+     * @return a new document
+     */
+    public ObjectNode generate(final DocumentShape shape)
+    {
+        return document(shape, shape.getDepth());
+    }
+
+    /**
+     * Generate a document made of sections of the given shape, whose
+     * serialized size is at least the given number of bytes
+     *
+     * <p>Members of the document are named {@code section0}, {@code section1},
+     * and so on; the serialized size of the document exceeds the given size by
+     * at most the size of one section.</p>
+     *
+     * @param shape the shape of sections
+     * @param size the size, in bytes
+     * @return a new document
+     */
+    public ObjectNode generate(final DocumentShape shape, final long size)
+    {
+        final ObjectNode ret = FACTORY.objectNode();
+        bytes = 2L;
+        int i = 0;
+        do {
+            final String name = "section" + i++;
+            bytes += name.length() + 4L;
+            ret.put(name, document(shape, shape.getDepth()));
+        } while (bytes < size);
+        return ret;
+    }
+
+    /**
+     * Generate a document of the given size and a mutated version of it
+     *
+     * @param shape the shape of sections of the document
+     * @param size the size, in bytes
+     * @param changed the percentage of values to change
+     * @return the workload
+     * @see #generate(DocumentShape, long)
+     * @see #mutate(JsonNode, int)
+     */
+    public GeneratedWorkload workload(final DocumentShape shape,
+        final long size, final int changed)
+    {
+        return mutate(generate(shape, size), changed);
+    }
+
+    /**
+     * Mutate a document
+     *
+     * <p>Each value of the document is changed with a probability of {@code
+     * changed} percent:</p>
+     *
+     * <ul>
+     *     <li>a scalar member is replaced or, one time out of four,
+     *     removed;</li>
+     *     <li>an object gets a new member;</li>
+     *     <li>a record is modified, removed, or followed by a new record;</li>
+     *     <li>other array elements are replaced.</li>
+     * </ul>
+     *
+     * <p>Arrays are never moved, so that the keys of arrays of records are the
+     * same in the source and the target. The source is not modified; the
+     * target shares unchanged values with it.</p>
+     *
+     * <p>Keys of new records are only unique if the source was generated by
+     * this generator.</p>
+     *
+     * @param source the document, an object or an array
+     * @param changed the percentage of values to change, between 0 and 100
+     * @return the workload
+     */
+    public GeneratedWorkload mutate(final JsonNode source, final int changed)
+    {
+        Preconditions.checkArgument(changed >= 0 && changed <= 100,
+            "percentage must be between 0 and 100");
+        Preconditions.checkArgument(source.isContainerNode(),
+            "source must be an object or an array");
+        final Mutation mutation = new Mutation(changed);
+        final JsonNode target = mutation.container(JsonPointer.empty(), source);
+        return new GeneratedWorkload(source, target,
+            new JsonPatch(mutation.operations), mutation.keyFields);
+    }
+
+    private ObjectNode document(final DocumentShape shape, final int levels)
+    {
+        final ObjectNode ret = FACTORY.objectNode();
+
+        for (int i = 0; i < shape.getWidth(); i++)
+            member(ret, "field" + i, scalar(shape.getStringLength()));
+
+        final ArrayNode records = FACTORY.arrayNode();
+        for (int i = 0; i < shape.getArrayLength(); i++)
+            records.add(record(shape.isKeyed(), shape.getStringLength()));
+        member(ret, "records", records);
+
+        if (levels > 1)
+            member(ret, "child", document(shape, levels - 1));
+
+        return ret;
+    }
+
+    private void member(final ObjectNode object, final String name,
+        final JsonNode value)
+    {
+        bytes += name.length() + 4L;
+        object.put(name, value);
+    }
+
+    private ObjectNode record(final boolean keyed, final int stringLength)
+    {
+        final ObjectNode ret = FACTORY.objectNode();
+        if (keyed)
+            member(ret, KEY, FACTORY.textNode("r" + nextId++));
+        member(ret, "name", text(stringLength));
+        member(ret, "value", FACTORY.numberNode(random.nextInt()));
+        bytes += 24L;
+        ret.putArray("tags").add(random.nextInt(10)).add(random.nextInt(10));
+        return ret;
+    }
+
+    private JsonNode scalar(final int stringLength)
+    {
+        switch (random.nextInt(4)) {
+            case 0:
+                return text(stringLength);
+            case 1:
+                bytes += 11L;
+                return FACTORY.numberNode(random.nextInt());
+            case 2:
+                bytes += 20L;
+                return FACTORY.numberNode(random.nextDouble());
+            default:
+                bytes += 5L;
+                return FACTORY.booleanNode(random.nextBoolean());
+        }
+    }
+
+    private JsonNode text(final int length)
+    {
+        final char[] chars = new char[length];
+        for (int i = 0; i < length; i++)
+            chars[i] = ALPHABET[random.nextInt(ALPHABET.length)];
+        bytes += length + 2L;
+        return FACTORY.textNode(new String(chars));
+    }
+
+    /*
+     * Values created by mutations have the same kind as the values they
+     * replace
+     */
+    private final class Mutation
+    {
+        private final int changed;
+        private final List<JsonPatchOperation> operations
+            = Lists.newArrayList();
+        private final Map<JsonPointer, String> keyFields = Maps.newHashMap();
+
+        private Mutation(final int changed)
+        {
+            this.changed = changed;
+        }
+
+        private boolean isChanged()
+        {
+            return random.nextInt(100) < changed;
+        }
+
+        /*
+         * The pointer is that of the node in the target, which is also its
+         * pointer while the patch is applied, since operations on the node
+         * and its descendants are applied in document order
+         */
+        private JsonNode container(final JsonPointer pointer,
+            final JsonNode node)
+        {
+            return node.isObject() ? object(pointer, node)
+                : array(pointer, node);
+        }
+
+        private JsonNode object(final JsonPointer pointer, final JsonNode node)
+        {
+            final ObjectNode ret = FACTORY.objectNode();
+            final Iterator<Map.Entry<String, JsonNode>> iterator
+                = node.fields();
+            Map.Entry<String, JsonNode> entry;
+            JsonPointer ptr;
+            JsonNode value;
+
+            while (iterator.hasNext()) {
+                entry = iterator.next();
+                ptr = pointer.append(entry.getKey());
+                value = entry.getValue();
+                if (value.isContainerNode()) {
+                    ret.put(entry.getKey(), container(ptr, value));
+                    continue;
+                }
+                if (!isChanged()) {
+                    ret.put(entry.getKey(), value);
+                    continue;
+                }
+                if (random.nextInt(4) == 0) {
+                    operations.add(new RemoveOperation(ptr));
+                    continue;
+                }
+                value = like(value);
+                ret.put(entry.getKey(), value);
+                operations.add(new ReplaceOperation(ptr, value));
+            }
+
+            if (isChanged()) {
+                final String name = "added" + nextMember++;
+                value = FACTORY.numberNode(random.nextInt());
+                ret.put(name, value);
+                operations.add(new AddOperation(pointer.append(name), value));
+            }
+
+            return ret;
+        }
+
+        private JsonNode array(final JsonPointer pointer, final JsonNode node)
+        {
+            final ArrayNode ret = FACTORY.arrayNode();
+            boolean keyed = node.size() > 0;
+            int index = 0;
+            ObjectNode element;
+
+            for (final JsonNode value: node) {
+                if (!isRecord(value)) {
+                    keyed = false;
+                    if (value.isContainerNode())
+                        ret.add(container(pointer.append(index), value));
+                    else if (isChanged()) {
+                        ret.add(like(value));
+                        operations.add(new ReplaceOperation(
+                            pointer.append(index), ret.get(index)));
+                    } else
+                        ret.add(value);
+                    index++;
+                    continue;
+                }
+
+                keyed &= value.has(KEY);
+                if (!isChanged()) {
+                    ret.add(value);
+                    index++;
+                    continue;
+                }
+
+                switch (random.nextInt(3)) {
+                    case 0:
+                        element = (ObjectNode) value.deepCopy();
+                        element.put("value", random.nextInt());
+                        ret.add(element);
+                        operations.add(new ReplaceOperation(
+                            pointer.append(index).append("value"),
+                            element.get("value")));
+                        index++;
+                        break;
+                    case 1:
+                        operations.add(new RemoveOperation(
+                            pointer.append(index)));
+                        break;
+                    default:
+                        ret.add(value);
+                        index++;
+                        element = record(value.has(KEY),
+                            value.get("name").textValue().length());
+                        ret.add(element);
+                        operations.add(new AddOperation(
+                            pointer.append(index), element));
+                        index++;
+                }
+            }
+
+            if (keyed)
+                keyFields.put(pointer, KEY);
+
+            return ret;
+        }
+
+        private boolean isRecord(final JsonNode node)
+        {
+            return node.isObject() && node.has("name") && node.has("value")
+                && node.has("tags");
+        }
+
+        private JsonNode like(final JsonNode node)
+        {
+            if (node.isTextual())
+                return text(node.textValue().length());
+            if (node.isBoolean())
+                return FACTORY.booleanNode(!node.booleanValue());
+            if (node.isDouble())
+                return FACTORY.numberNode(random.nextDouble());
+            return FACTORY.numberNode(random.nextInt());
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+
+package com.github.fge.jsonpatch.workload;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jackson.JsonNumEquals;
+import com.github.fge.jsonpatch.JsonPatchException;
+import com.github.fge.jsonpatch.diff.JsonDiff;
+import com.google.common.base.Equivalence;
+import com.google.common.collect.Lists;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Iterator;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public final class WorkloadGeneratorTest
+{
+    private static final Equivalence<JsonNode> EQUIVALENCE
+        = JsonNumEquals.getInstance();
+    private static final long SEED = 6902L;
+
+    @DataProvider
+    public Iterator<Object[]> getShapes()
+    {
+        final List<Object[]> list = Lists.newArrayList();
+        final DocumentShape[] shapes = {
+            DocumentShape.DEFAULT, DocumentShape.DEFAULT.withKeyed(false),
+            DocumentShape.wide(), DocumentShape.deep(),
+            DocumentShape.keyedArrays().withArrayLength(256),
+            DocumentShape.longStrings()
+        };
+
+        for (final DocumentShape shape: shapes)
+            for (final int changed: new int[] { 0, 10, 50, 100 })
+                list.add(new Object[] { shape, changed });
+
+        return list.iterator();
+    }
+
+    @Test
+    public void sameSeedGeneratesTheSameWorkload()
+    {
+        final GeneratedWorkload first = new WorkloadGenerator(SEED)
+            .workload(DocumentShape.DEFAULT, 10000L, 10);
+        final GeneratedWorkload second = new WorkloadGenerator(SEED)
+            .workload(DocumentShape.DEFAULT, 10000L, 10);
+
+        assertEquals(first.getSource(), second.getSource());
+        assertEquals(first.getTarget(), second.getTarget());
+        assertEquals(first.getPatch().toString(),
+            second.getPatch().toString());
+        assertEquals(first.getKeyFields(), second.getKeyFields());
+    }
+
+    @Test
+    public void generatedDocumentsHaveTheRequestedSize()
+    {
+        final long size = 100000L;
+        final JsonNode node = new WorkloadGenerator(SEED)
+            .generate(DocumentShape.DEFAULT, size);
+        final int actual = node.toString().length();
+
+        assertTrue(actual >= size * 9 / 10 && actual <= size * 12 / 10,
+            "unexpected size " + actual);
+    }
+
+    @Test(dataProvider = "getShapes")
+    public void generatedPatchTurnsTheSourceIntoTheTarget(
+        final DocumentShape shape, final int changed)
+        throws JsonPatchException
+    {
+        final WorkloadGenerator generator = new WorkloadGenerator(SEED);
+        final GeneratedWorkload workload
+            = generator.mutate(generator.generate(shape), changed);
+        final String orig = workload.getSource().toString();
+
+        final JsonNode patched = workload.getPatch().apply(
+            workload.getSource());
+
+        assertTrue(EQUIVALENCE.equivalent(patched, workload.getTarget()));
+        assertEquals(workload.getSource().toString(), orig);
+        assertEquals(workload.getPatch().toString().equals("[]"),
+            EQUIVALENCE.equivalent(workload.getSource(),
+                workload.getTarget()));
+        assertEquals(workload.getKeyFields().isEmpty(), !shape.isKeyed()
+            || shape.getArrayLength() == 0);
+    }
+
+    @Test(dataProvider = "getShapes")
+    public void diffOfGeneratedDocumentsTurnsTheSourceIntoTheTarget(
+        final DocumentShape shape, final int changed)
+        throws JsonPatchException
+    {
+        final GeneratedWorkload workload = new WorkloadGenerator(SEED)
+            .workload(shape, 0L, changed);
+        final JsonNode source = workload.getSource();
+        final JsonNode target = workload.getTarget();
+
+        assertTrue(EQUIVALENCE.equivalent(
+            JsonDiff.asJsonPatch(source, target).apply(source), target));
+        assertFalse(changed == 0 && !source.equals(target));
+    }
+}